@@ -26,16 +26,14 @@
 
 package de.unkrig.doclet.cs;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringReader;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
-import com.sun.javadoc.RootDoc;
+import com.sun.javadoc.DocErrorReporter;
 
 import de.unkrig.doclet.cs.CsDoclet.Quickfix;
 import de.unkrig.doclet.cs.CsDoclet.Rule;
@@ -51,22 +49,26 @@ class CheckstyleMetadataDotPropertiesGenerator {
 
     private CheckstyleMetadataDotPropertiesGenerator() {}
 
+    private static final String NL = PropertiesWriter.NL;
+
     /**
      * Prints the 'checkstyle-metadata.properties' file.
      */
     public static void
     generate(
         final Collection<Rule> rules,
-        final PrintWriter      pw,
-        final RootDoc          rootDoc
-    ) {
+        final Writer           w,
+        final DocErrorReporter errorReporter
+    ) throws IOException {
+
+        PropertiesWriter pw = new PropertiesWriter(w);
 
-        pw.printf(
+        pw.raw(
             ""
-            + "%n"
-            + "# This file was generated by the CheckStyle doclet; see http://cs-doclet.unkrig.de%n"
-            + "%n"
-            + "# Rule groups:%n"
+            + NL
+            + "# This file was generated by the CheckStyle doclet; see http://cs-doclet.unkrig.de" + NL
+            + NL
+            + "# Rule groups:" + NL
         );
 
         SortedMap<String, String> groups = new TreeMap<String /*group*/, String /*groupName*/>();
@@ -81,7 +83,7 @@ class CheckstyleMetadataDotPropertiesGenerator {
 
             String originalRuleGroupName = groups.put(ruleGroup, ruleGroupName);
             if (originalRuleGroupName != null && !originalRuleGroupName.equals(ruleGroupName)) {
-                rootDoc.printError(rule.ref().position(), (
+                errorReporter.printError(rule.position(), (
                     "Non-equal redefinition of name of group '"
                     + ruleGroup
                     + "': Previously '"
@@ -93,42 +95,35 @@ class CheckstyleMetadataDotPropertiesGenerator {
             }
         }
         for (Entry<String, String> e : groups.entrySet()) {
-            pw.printf("%-16s = %s%n", e.getKey(), e.getValue());
+            pw.property(e.getKey(), 16, e.getValue());
         }
 
-        pw.printf(
+        pw.raw(
             ""
-            + "%n"
-            + "# Custom checks, in alphabetical order.%n"
+            + NL
+            + "# Custom checks, in alphabetical order." + NL
         );
 
+        StringBuilder description = new StringBuilder();
         for (Rule rule : rules) {
 
-            pw.printf((
-                ""
-                + "%n"
-                + "# --------------- %2$s ---------------%n"
-                + "%n"
-                + "%1$s.name = %2$s%n"
-                + "%1$s.desc =\\%n"
-            ), rule.simpleName(), rule.name());
+            pw.raw(NL + "# --------------- ").raw(rule.name()).raw(" ---------------" + NL + NL);
+            pw.property(rule.simpleName() + ".name", 0, rule.name());
 
-            String description = rule.longDescription();
+            description.setLength(0);
+            description.append(rule.longDescription());
 
             Quickfix[] qfs = rule.quickfixes();
             if (qfs != null && qfs.length > 0) {
 
-                description += String.format("%n%n<h4>Quickfixes:</h4>%n<dl>%n");
+                description.append(NL).append(NL).append("<h4>Quickfixes:</h4>").append(NL).append("<dl>").append(NL);
 
                 for (Quickfix qf : qfs) {
-                    description += String.format((
-                        ""
-                        + "  <dt>%1$s%n"
-                        + "  <dd>%2$s%n"
-                    ), qf.label(), qf.shortDescription());
+                    description.append("  <dt>").append(qf.label()).append(NL);
+                    description.append("  <dd>").append(qf.shortDescription()).append(NL);
                 }
 
-                description += String.format("</dl>");
+                description.append("</dl>");
             }
 
             // TODO What was this supposed to do?
@@ -138,47 +133,18 @@ class CheckstyleMetadataDotPropertiesGenerator {
 //                rootDoc
 //            );
 
-            CheckstyleMetadataDotPropertiesGenerator.printPropertyValue(description, pw);
+            pw.multiLineProperty(rule.simpleName() + ".desc", description);
 
             for (RuleProperty property : rule.properties()) {
 
                 String shortDescription = CsDoclet.htmlToPlainText(
                     property.shortDescription(),
-                    property.ref().position(),
-                    rootDoc
+                    property.position(),
+                    errorReporter
                 );
-                shortDescription = shortDescription.replaceAll("\\s+", " ");
-
-                pw.printf("%1$-40s = %2$s%n", rule.simpleName() + '.' + property.name(), shortDescription);
-            }
-        }
-    }
 
-    private static void
-    printPropertyValue(String text, final PrintWriter pw) {
-
-        boolean isFirst = true;
-        for (BufferedReader br = new BufferedReader(new StringReader(text));;) {
-
-            String line;
-            try {
-                line = br.readLine();
-            } catch (IOException e) {
-                throw new AssertionError(e);
-            }
-            if (line == null) break;
-
-            if (isFirst) {
-                isFirst = false;
-            } else {
-                pw.println("\\n\\");
+                pw.property(rule.simpleName() + '.' + property.name(), 40, shortDescription);
             }
-
-            pw.print('\t');
-            if (line.startsWith(" ")) pw.print('\\');
-            pw.print(line);
         }
-
-        pw.println();
     }
 }
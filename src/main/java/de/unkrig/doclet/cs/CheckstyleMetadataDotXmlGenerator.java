@@ -26,10 +26,11 @@
 
 package de.unkrig.doclet.cs;
 
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 
-import com.sun.javadoc.RootDoc;
+import com.sun.javadoc.DocErrorReporter;
 
 import de.unkrig.commons.text.Notations;
 import de.unkrig.doclet.cs.CsDoclet.OptionProvider;
@@ -48,105 +49,120 @@ class CheckstyleMetadataDotXmlGenerator {
 
     private CheckstyleMetadataDotXmlGenerator() {}
 
+    private static final String NL = XmlWriter.NL;
+
+    // Constant XML fragments.
+    private static final String
+    PROLOG = (
+        ""
+        + "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + NL
+        + "<!DOCTYPE checkstyle-metadata PUBLIC" + NL
+        + "\"-//eclipse-cs//DTD Check Metadata 1.1//EN\"" + NL
+        + "\"http://eclipse-cs.sourceforge.net/dtds/checkstyle-metadata_1_1.dtd\">" + NL
+        + "<checkstyle-metadata>" + NL
+        + NL
+        + "    <!-- This file was generated by the CheckStyle doclet; see http://cs-doclet.unkrig.de -->" + NL
+    ),
+    RULE_GROUP_METADATA_1       = NL + "    <rule-group-metadata name=\"",
+    RULE_GROUP_METADATA_2       = (
+        "\" priority=\"999\">" + NL + "        <rule-metadata" + NL + "            internal-name=\""
+    ),
+    PARENT                      = "\"" + NL + "            parent=\"",
+    HAS_SEVERITY                = "\"" + NL + "            hasSeverity=\"",
+    RULE_NAME                   = "\"" + NL + "            name=\"%",
+    RULE_NAME_END               = ".name\"" + NL + "        >" + NL + "            <alternative-name internal-name=\"",
+    RULE_DESCRIPTION            = "\" />" + NL + "            <description>%",
+    RULE_DESCRIPTION_END        = ".desc</description>" + NL,
+    PROPERTY_METADATA           = "            <property-metadata" + NL + "                name=\"",
+    DATATYPE                    = "\"" + NL + "                datatype=\"",
+    DEFAULT_VALUE               = "\"" + NL + "                default-value=\"",
+    OVERRIDE_DEFAULT_VALUE      = "\"" + NL + "                override-default-value=\"",
+    PROPERTY_DESCRIPTION        = "\"" + NL + "            >" + NL + "                <description>%",
+    PROPERTY_DESCRIPTION_END    = "</description>" + NL,
+    ENUMERATION_OPTION_PROVIDER = "                <enumeration option-provider=\"",
+    EMPTY_ELEMENT_END           = "\" />" + NL,
+    ENUMERATION                 = "                <enumeration>" + NL,
+    PROPERTY_VALUE_OPTION       = "                    <property-value-option value=\"",
+    ENUMERATION_END             = "                </enumeration>" + NL,
+    PROPERTY_METADATA_END       = "            </property-metadata>" + NL,
+    QUICKFIX                    = "            <quickfix classname=\"",
+    MESSAGE_KEY                 = "            <message-key key=\"",
+    RULE_METADATA_END           = "        </rule-metadata>" + NL + "    </rule-group-metadata>" + NL,
+    EPILOG                      = "</checkstyle-metadata>" + NL;
+
     /**
      * Prints the 'checkstyle-metadata.xml' file.
      */
     public static void
-    generate(final Collection<Rule> rules, final PrintWriter pw, final RootDoc rootDoc) {
-
-        pw.printf(
-            ""
-            + "<?xml version=\"1.0\" encoding=\"UTF-8\"?>%n"
-            + "<!DOCTYPE checkstyle-metadata PUBLIC%n"
-            + "\"-//eclipse-cs//DTD Check Metadata 1.1//EN\"%n"
-            + "\"http://eclipse-cs.sourceforge.net/dtds/checkstyle-metadata_1_1.dtd\">%n"
-            + "<checkstyle-metadata>%n"
-            + "%n"
-            + "    <!-- This file was generated by the CheckStyle doclet; see http://cs-doclet.unkrig.de -->"
-            + "%n"
-        );
+    generate(final Collection<Rule> rules, final Writer w, final DocErrorReporter errorReporter) throws IOException {
+
+        XmlWriter xw = new XmlWriter(w);
+
+        xw.raw(PROLOG);
 
         for (Rule rule : rules) {
 
-            pw.printf((
-                ""
-                + "%n"
-                + "    <!-- %1$s -->%n"
-                + "%n"
-                + "    <rule-group-metadata name=\"%3$s\" priority=\"999\">%n"
-                + "        <rule-metadata%n"
-                + "            internal-name=\"%2$s\"%n"
-                + "            parent=\"%4$s\"%n"
-                + (rule.hasSeverity() == null ? "" : "            hasSeverity=\"%5$s\"%n")
-                + "            name=\"%%%1$s.name\"%n"
-                + "        >%n"
-                + "            <alternative-name internal-name=\"%2$s\" />%n"
-                + "            <description>%%%1$s.desc</description>%n"
-            ), rule.simpleName(), rule.internalName(), rule.group(), rule.parent(), rule.hasSeverity());
+            xw.raw(NL).raw("    ").comment(rule.simpleName()).raw(NL);
+
+            xw.raw(RULE_GROUP_METADATA_1).attributeValue(rule.group());
+            xw.raw(RULE_GROUP_METADATA_2).attributeValue(rule.internalName());
+            xw.raw(PARENT).attributeValue(rule.parent());
+            Boolean hasSeverity = rule.hasSeverity();
+            if (hasSeverity != null) xw.raw(HAS_SEVERITY).attributeValue(hasSeverity);
+            xw.raw(RULE_NAME).attributeValue(rule.simpleName());
+            xw.raw(RULE_NAME_END).attributeValue(rule.internalName());
+            xw.raw(RULE_DESCRIPTION).text(rule.simpleName()).raw(RULE_DESCRIPTION_END);
 
             boolean isFirstProperty = true;
             for (RuleProperty property : rule.properties()) {
 
                 if (isFirstProperty) {
-                    pw.printf("%n");         // Insert one blank line before the first property description.
+                    xw.raw(NL);         // Insert one blank line before the first property description.
                     isFirstProperty = false;
                 }
 
-                pw.printf(
-                    (
-                        ""
-                        + "            <property-metadata%n"
-                        + "                name=\"%2$s\"%n"
-                        + "                datatype=\"%3$s\"%n"
-                        + (property.defaultValue()         == null ? "" : "                default-value=\"%4$s\"%n")
-                        + (property.overrideDefaultValue() == null ? "" : "                override-default-value=\"%5$s\"%n") // SUPPRESS CHECKSTYLE LineLength
-                        + "            >%n"
-                        + "                <description>%%%1$s.%2$s</description>%n"
-                    ),
-                    rule.simpleName(),
-                    property.name(),
-                    Notations.fromUnderscored(property.datatype().toString()).toUpperCamelCase(),
-                    property.defaultValue(),
-                    property.overrideDefaultValue()
+                xw.raw(PROPERTY_METADATA).attributeValue(property.name());
+                xw.raw(DATATYPE).attributeValue(
+                    Notations.fromUnderscored(property.datatype().toString()).toUpperCamelCase()
                 );
+                Object defaultValue = property.defaultValue();
+                if (defaultValue != null) xw.raw(DEFAULT_VALUE).attributeValue(defaultValue);
+                Object overrideDefaultValue = property.overrideDefaultValue();
+                if (overrideDefaultValue != null) xw.raw(OVERRIDE_DEFAULT_VALUE).attributeValue(overrideDefaultValue);
+                xw.raw(PROPERTY_DESCRIPTION).text(rule.simpleName()).raw(".").text(property.name());
+                xw.raw(PROPERTY_DESCRIPTION_END);
+
                 OptionProvider optionProvider = property.optionProvider();
                 if (optionProvider != null) {
-                    if (optionProvider.className() != null) {
-                        pw.printf("                <enumeration option-provider=\"%s\" />%n", optionProvider.className()); // SUPPRESS CHECKSTYLE LineLength
+                    String className = optionProvider.className();
+                    if (className != null) {
+                        xw.raw(ENUMERATION_OPTION_PROVIDER).attributeValue(className).raw(EMPTY_ELEMENT_END);
                     } else {
-                        ValueOption[] valueOptions = optionProvider.valueOptions();
-                        pw.printf("                <enumeration>%n");
-                        for (ValueOption valueOption : valueOptions) {
-                            pw.printf(
-                                "                    <property-value-option value=\"%s\" />%n",
-                                valueOption.name()
-                            );
+                        xw.raw(ENUMERATION);
+                        for (ValueOption valueOption : optionProvider.valueOptions()) {
+                            xw.raw(PROPERTY_VALUE_OPTION).attributeValue(valueOption.name()).raw(EMPTY_ELEMENT_END);
                         }
-                        pw.printf("                </enumeration>%n");
+                        xw.raw(ENUMERATION_END);
                     }
                 }
-                pw.printf("            </property-metadata>%n");
+                xw.raw(PROPERTY_METADATA_END);
             }
 
             Quickfix[] qfs = rule.quickfixes();
             if (qfs != null && qfs.length > 0) {
-                pw.printf("%n");
+                xw.raw(NL);
                 for (Quickfix qf : qfs) {
-                    pw.printf("            <quickfix classname=\"%s\" />%n", qf.className());
+                    xw.raw(QUICKFIX).attributeValue(qf.className()).raw(EMPTY_ELEMENT_END);
                 }
             }
 
             for (String messageKey : rule.messages().keySet()) {
-                pw.printf("            <message-key key=\"%s\" />%n", messageKey);
+                xw.raw(MESSAGE_KEY).attributeValue(messageKey).raw(EMPTY_ELEMENT_END);
             }
 
-            pw.printf((
-                ""
-                + "        </rule-metadata>%n"
-                + "    </rule-group-metadata>%n"
-            ));
+            xw.raw(RULE_METADATA_END);
         }
 
-        pw.printf("</checkstyle-metadata>%n");
+        xw.raw(EPILOG);
     }
 }
@@ -0,0 +1,143 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.RootDoc;
+
+import de.unkrig.commons.doclet.Docs;
+
+/**
+ * Determines whether a class is a check, a filter or a quickfix. Each class's hierarchy is examined only once; the
+ * result is remembered for all later queries.
+ */
+public final
+class ClassificationIndex {
+
+    /**
+     * The possible classifications of a class.
+     */
+    public
+    enum Classification {
+
+        /** The class is a subclass of {@code AbstractCheck} or {@code Check}. */
+        CHECK,
+
+        /** The class implements {@code TreeWalkerFilter} or {@code Filter}. */
+        FILTER,
+
+        /** The class implements {@code ICheckstyleMarkerResolution}. */
+        QUICKFIX,
+
+        /** None of the above. */
+        NONE,
+    }
+
+    private final ClassDoc[] checkClasses;
+    private final ClassDoc[] filterClasses;
+    private final ClassDoc[] quickfixClasses;
+
+    private final Map<ClassDoc, Classification> classifications = new IdentityHashMap<ClassDoc, Classification>();
+
+    public
+    ClassificationIndex(RootDoc rootDoc) {
+
+        this.checkClasses = ClassificationIndex.classesNamed(
+            rootDoc,
+            "com.puppycrawl.tools.checkstyle.api.AbstractCheck", // <= Supersedes "Check" since CS 6.19
+            "com.puppycrawl.tools.checkstyle.api.Check"
+        );
+
+        this.filterClasses = ClassificationIndex.classesNamed(
+            rootDoc,
+            "com.puppycrawl.tools.checkstyle.TreeWalkerFilter", // <= Since CS 8.2
+            "com.puppycrawl.tools.checkstyle.api.Filter"
+        );
+
+        this.quickfixClasses = ClassificationIndex.classesNamed(
+            rootDoc,
+            "net.sf.eclipsecs.ui.quickfixes.ICheckstyleMarkerResolution"
+        );
+    }
+
+    /**
+     * @return How the <var>classDoc</var> is classified; if a class falls into more than one category, then {@link
+     *         Classification#CHECK} takes precedence over {@link Classification#FILTER}, which takes precedence over
+     *         {@link Classification#QUICKFIX}
+     */
+    public synchronized Classification
+    classify(ClassDoc classDoc) {
+
+        Classification result = this.classifications.get(classDoc);
+        if (result == null) {
+            result = (
+                ClassificationIndex.isSubclassOfAnyOf(classDoc, this.checkClasses)    ? Classification.CHECK :
+                ClassificationIndex.isSubclassOfAnyOf(classDoc, this.filterClasses)   ? Classification.FILTER :
+                ClassificationIndex.isSubclassOfAnyOf(classDoc, this.quickfixClasses) ? Classification.QUICKFIX :
+                Classification.NONE
+            );
+            this.classifications.put(classDoc, result);
+        }
+
+        return result;
+    }
+
+    private static boolean
+    isSubclassOfAnyOf(ClassDoc subject, ClassDoc[] baseClasses) {
+
+        for (ClassDoc bc : baseClasses) {
+            if (Docs.isSubclassOf(subject, bc)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return Classes that that have one of the <var>classNames</var> (may be empty)
+     */
+    private static ClassDoc[]
+    classesNamed(RootDoc rootDoc, String... classNames) {
+
+        List<ClassDoc> result = new ArrayList<>();
+
+        for (String cn : classNames) {
+            ClassDoc cd = rootDoc.classNamed(cn);
+            if (cd != null) result.add(cd);
+        }
+
+        // Notice that "RootDoc.classNamed()" finds only classes that are in one of the configured packages, or were
+        // implicitly loaded through the "-classpath". Classes that are on the "-classpath", but are not referenced
+        // by other classes are NOT found! So we DO NOT check for "result.isEmpty()" here.
+
+        return result.toArray(new ClassDoc[result.size()]);
+    }
+}
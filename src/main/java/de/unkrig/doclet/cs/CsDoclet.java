@@ -27,36 +27,32 @@
 package de.unkrig.doclet.cs;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.lang.ref.SoftReference;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.Map.Entry;
 import java.util.regex.Pattern;
 
 import com.sun.javadoc.*;
 
 import de.unkrig.commons.doclet.Annotations;
 import de.unkrig.commons.doclet.Docs;
-import de.unkrig.commons.doclet.Types;
 import de.unkrig.commons.doclet.html.Html;
 import de.unkrig.commons.doclet.html.Html.Link;
 import de.unkrig.commons.doclet.html.Html.LinkMaker;
 import de.unkrig.commons.io.IoUtil;
 import de.unkrig.commons.lang.AssertionUtil;
 import de.unkrig.commons.lang.Comparators;
-import de.unkrig.commons.lang.ObjectUtil;
 import de.unkrig.commons.lang.protocol.Consumer;
 import de.unkrig.commons.lang.protocol.ConsumerUtil;
-import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
 import de.unkrig.commons.lang.protocol.Longjump;
 import de.unkrig.commons.nullanalysis.NotNullByDefault;
 import de.unkrig.commons.nullanalysis.Nullable;
-import de.unkrig.commons.text.Notations;
 import de.unkrig.commons.util.CommandLineOptions;
 import de.unkrig.commons.util.collections.ElementWithContext;
 import de.unkrig.commons.util.collections.IterableUtil;
@@ -68,7 +64,9 @@ import de.unkrig.csdoclet.annotation.MultiCheckRuleProperty;
 import de.unkrig.csdoclet.annotation.RegexRuleProperty;
 import de.unkrig.csdoclet.annotation.SingleSelectRuleProperty;
 import de.unkrig.csdoclet.annotation.StringRuleProperty;
+import de.unkrig.doclet.cs.ClassificationIndex.Classification;
 import de.unkrig.doclet.cs.CsDoclet.RuleProperty.Datatype;
+import de.unkrig.doclet.cs.PageManifest.IndexItem;
 import de.unkrig.doclet.cs.html.templates.AllRulesFrameHtml;
 import de.unkrig.doclet.cs.html.templates.IndexHtml;
 import de.unkrig.doclet.cs.html.templates.OptionProviderDetailHtml;
@@ -84,6 +82,11 @@ import de.unkrig.notemplate.javadocish.templates.AbstractRightFrameHtml;
 /**
  * A doclet that creates ECLIPSE-CS metadata files and/or documentation for CheckStyle rules in MediaWiki markup
  * format.
+ * <p>
+ *   Notice that the javadoc API is not thread-safe. Hence the model (rules, quickfixes and option providers) is
+ *   always derived by the doclet thread; only the output generation (which is based on the completed model) can
+ *   execute in multiple threads (see "{@code -threads}").
+ * </p>
  */
 public final
 class CsDoclet {
@@ -97,6 +100,17 @@ class CsDoclet {
 
     private static final Pattern SETTER = Pattern.compile("set[A-Z].*");
 
+    /**
+     * The paths (relative to the destination directory, with "/" separators) of all files that the HTML documentation
+     * can consist of; "-dry-run" reports no other files as "removed".
+     */
+    private static final Pattern GENERATED_HTML_FILE = Pattern.compile(
+        "(?:index|allrules-frame|overview-summary|index-all)\\.html"
+        + "|stylesheet2?\\.css"
+        + "|index-files/index-\\d+\\.html"
+        + "|(?:checks|filters|quickfixes|option-providers)/[^/]+\\.html"
+    );
+
     public static LanguageVersion languageVersion() { return LanguageVersion.JAVA_1_5; }
 
     /**
@@ -133,6 +147,16 @@ class CsDoclet {
         if ("-link".equals(option))                               return 2;
         if ("-linkoffline".equals(option))                        return 3;
         if ("-splitindex".equals(option))                         return 1;
+        if ("-threads".equals(option))                            return 2;
+        if ("-option-provider-timeout".equals(option))            return 2;
+        if ("-model-cache-dir".equals(option))                    return 2;
+        if ("-incremental".equals(option))                        return 1;
+        if ("-dry-run".equals(option))                            return 1;
+        if ("-show-diffs".equals(option))                         return 1;
+        if ("-validate-only".equals(option))                      return 1;
+        if ("-fail-fast".equals(option))                          return 1;
+        if ("-reproducible".equals(option))                       return 1;
+        if ("-output-manifest".equals(option))                    return 2;
 
         // Standard doclet options which we ignore:
         if ("--add-stylesheet".equals(option))           return 2;
@@ -191,7 +215,21 @@ class CsDoclet {
      * Overview"</a>.
      */
     public static boolean
-    start(final RootDoc rootDoc) throws IOException {
+    start(RootDoc rootDoc) throws IOException {
+
+        for (String[] option : rootDoc.options()) {
+            if ("-fail-fast".equals(option[0])) rootDoc = FailFast.rootDoc(rootDoc);
+        }
+
+        try {
+            return CsDoclet.generate(rootDoc);
+        } catch (FailFast.Abort a) {
+            return false;
+        }
+    }
+
+    private static boolean
+    generate(final RootDoc rootDoc) throws IOException {
 
         // Because "IMarkerResolution2.getLabel()" and "IMarkerResolution2.getDescription()" eventually use "NLS",
         // we have to change the default locale to "ENGLISH", because we want the quickfixes' labels and descriptions
@@ -204,8 +242,16 @@ class CsDoclet {
         File    checkstyleMetadataDotPropertiesDir = null;
         File    checkstyleMetadataDotXmlDir        = null;
         File    messagesDotPropertiesDir           = null;
+        int     threads                            = 1;
+        long    optionProviderTimeoutMillis        = 60000;
+        File    modelCacheDir                      = null;
+        boolean incremental                        = false;
+        boolean dryRun                             = false;
+        boolean showDiffs                          = false;
+        boolean validateOnly                       = false;
+        File    outputManifest                     = null;
 
-        final Map<String /*packageName*/, URL /*target*/> externalJavadocs = new HashMap<String, URL>();
+        final List<URL[] /*targetUrl,packageListUrl*/>   externalJavadocLinks = new ArrayList<URL[]>();
 
         for (String[] option : rootDoc.options()) {
 
@@ -233,7 +279,7 @@ class CsDoclet {
                 options.bottom = option[1];
             } else
             if ("-notimestamp".equals(option[0])) {
-                options.noTimestamp = Boolean.parseBoolean(option[1]);
+                options.noTimestamp = true;
             } else
 
             // "Other" options.
@@ -248,17 +294,62 @@ class CsDoclet {
             } else
             if ("-link".equals(option[0])) {
                 URL targetUrl = new URL(option[1] + '/');
-                Docs.readExternalJavadocs(targetUrl, targetUrl, externalJavadocs, rootDoc);
+                externalJavadocLinks.add(new URL[] { targetUrl, targetUrl });
             } else
             if ("-linkoffline".equals(option[0])) {
                 URL targetUrl      = new URL(option[1] + '/');
                 URL packageListUrl = CsDoclet.newUrl(option[2] + '/');
 
-                Docs.readExternalJavadocs(targetUrl, packageListUrl, externalJavadocs, rootDoc);
+                externalJavadocLinks.add(new URL[] { targetUrl, packageListUrl });
             } else
             if ("-splitindex".equals(option[0])) {
                 options.splitIndex = true;
             } else
+            if ("-threads".equals(option[0])) {
+                try {
+                    threads = Integer.parseInt(option[1]);
+                } catch (NumberFormatException nfe) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    rootDoc.printError("Invalid number of threads \"" + option[1] + "\"");
+                    return false;
+                }
+            } else
+            if ("-option-provider-timeout".equals(option[0])) {
+                try {
+                    optionProviderTimeoutMillis = Long.parseLong(option[1]);
+                } catch (NumberFormatException nfe) {
+                    optionProviderTimeoutMillis = -1;
+                }
+                if (optionProviderTimeoutMillis < 0) {
+                    rootDoc.printError("Invalid option provider timeout \"" + option[1] + "\"");
+                    return false;
+                }
+            } else
+            if ("-model-cache-dir".equals(option[0])) {
+                modelCacheDir = new File(option[1]);
+            } else
+            if ("-incremental".equals(option[0])) {
+                incremental = true;
+            } else
+            if ("-dry-run".equals(option[0])) {
+                dryRun = true;
+            } else
+            if ("-show-diffs".equals(option[0])) {
+                showDiffs = true;
+            } else
+            if ("-validate-only".equals(option[0])) {
+                validateOnly = true;
+            } else
+            if ("-reproducible".equals(option[0])) {
+
+                // The ordering of all output is stable anyway, so only the timestamps must be suppressed.
+                options.noTimestamp = true;
+            } else
+            if ("-output-manifest".equals(option[0])) {
+                outputManifest = new File(option[1]);
+            } else
             {
 
                 // It is quite counterintuitive, but 'options()' returns ALL options, not only those which
@@ -267,8 +358,18 @@ class CsDoclet {
             }
         }
 
+        // With "-validate-only", the complete model is derived and checked, but nothing is written.
+        final boolean fullModel = generateHtml || validateOnly;
+        if (validateOnly) {
+            generateHtml                       = false;
+            checkstyleMetadataDotPropertiesDir = null;
+            checkstyleMetadataDotXmlDir        = null;
+            messagesDotPropertiesDir           = null;
+        }
+
         if (
-            !generateHtml
+            !validateOnly
+            && !generateHtml
             && checkstyleMetadataDotPropertiesDir == null
             && checkstyleMetadataDotXmlDir == null
             && messagesDotPropertiesDir == null
@@ -279,11 +380,29 @@ class CsDoclet {
             );
         }
 
-        ClassDoc[] checkClasses    = CsDoclet.getCheckClasses(rootDoc);
-        ClassDoc[] filterClasses   = CsDoclet.getFilterClasses(rootDoc);
-        ClassDoc[] quickfixClasses = CsDoclet.getQuickfixClasses(rootDoc);
+        // Read the package lists of the external javadocs. Without "-d", only the descriptions in the metadata files
+        // can contain links, so the package lists are not read before a link to another package must be resolved.
+        final Map<String /*packageName*/, URL /*target*/> externalJavadocs;
+        if (generateHtml) {
+            externalJavadocs = new HashMap<String, URL>();
+            for (URL[] link : externalJavadocLinks) {
+                Docs.readExternalJavadocs(link[0], link[1], externalJavadocs, rootDoc);
+            }
+        } else {
+            externalJavadocs = CsDoclet.lazyExternalJavadocs(externalJavadocLinks, rootDoc);
+        }
+
+        // For compatibility, "checkstyle-metadata.xml" goes to the "-checkstyle-metadata.properties-dir" unless
+        // "-checkstyle-metadata.xml-dir" is given.
+        if (checkstyleMetadataDotXmlDir == null) checkstyleMetadataDotXmlDir = checkstyleMetadataDotPropertiesDir;
 
-        Html html = new Html(new Html.ExternalJavadocsLinkMaker(externalJavadocs, new LinkMaker() {
+        final ClassificationIndex classificationIndex = new ClassificationIndex(rootDoc);
+
+        // The javadoc API is not thread-safe, so this lock must be held while it is accessed by the doclet thread and
+        // output tasks are running.
+        final Object javadocLock = new Object();
+
+        MemoizingHtml html = new MemoizingHtml(javadocLock, new Html.ExternalJavadocsLinkMaker(externalJavadocs, new LinkMaker() {
 
             @Override public Link
             makeLink(Doc from, Doc to, RootDoc rootDoc) {
@@ -296,20 +415,24 @@ class CsDoclet {
                     }
                     ClassDoc cd = (ClassDoc) to;
 
-                    if (CsDoclet.isSubclassOfAnyOf(cd, checkClasses)) {
+                    switch (classificationIndex.classify(cd)) {
+
+                    case CHECK:
                         href = "checks/"     + cd.simpleTypeName() + ".html";
-                        break HREF;
-                    }
-                    if (CsDoclet.isSubclassOfAnyOf(cd, filterClasses)) {
+                        break;
+
+                    case FILTER:
                         href = "filters/"    + cd.simpleTypeName() + ".html";
-                        break HREF;
-                    }
-                    if (CsDoclet.isSubclassOfAnyOf(cd, quickfixClasses)) {
+                        break;
+
+                    case QUICKFIX:
                         href = "quickfixes/" + cd.simpleTypeName() + ".html";
-                        break HREF;
-                    }
+                        break;
 
-                    href = null;
+                    default:
+                        href = null;
+                        break;
+                    }
                 }
 
                 // If the link points from one rule/quickfix to another rule/quickfix...
@@ -319,9 +442,40 @@ class CsDoclet {
             }
         }));
 
+        // The rendered descriptions depend on the "-link" and "-linkoffline" options, so these go into the
+        // fingerprints of the model cache entries.
+        final Fingerprints fingerprints = new Fingerprints();
+        String             linksSalt;
+        {
+            StringBuilder sb = new StringBuilder();
+            for (URL[] link : externalJavadocLinks) sb.append(link[0]).append(' ').append(link[1]).append('\n');
+            linksSalt = sb.toString();
+        }
+
+        ModelCache modelCache = null;
+        if (modelCacheDir != null) modelCache = new ModelCache(modelCacheDir, linksSalt, fingerprints, rootDoc);
+
+        final Descriptions descriptions = new Descriptions(html, rootDoc, modelCache);
+
         // Process all specified packages.
         Collection<Rule>                            allRules           = new ArrayList<Rule>();
-        Map<String /*quickfixClassName*/, Quickfix> allQuickfixes      = new HashMap<String, CsDoclet.Quickfix>();
+        QuickfixIndex                               quickfixIndex      = new QuickfixIndex();
+        MessageTables                               messageTables      = new MessageTables();
+        OptionProviderEvaluator                     evaluator          = new OptionProviderEvaluator(
+            rootDoc.options(),
+            CsDoclet.class.getClassLoader(),
+            optionProviderTimeoutMillis
+        );
+        OptionProviders                             optionProviders    = new OptionProviders(
+            evaluator,
+            descriptions,
+            fullModel
+        );
+        PropertyTables                              propertyTables     = new PropertyTables(
+            optionProviders,
+            descriptions,
+            fullModel
+        );
         Set<OptionProvider>                         allOptionProviders = new TreeSet<OptionProvider>(new Comparator<OptionProvider>() {
 
             @SuppressWarnings("null") @Override public int
@@ -330,316 +484,1134 @@ class CsDoclet {
             }
         });
 
-        for (PackageDoc pd : rootDoc.specifiedPackages()) {
-            String checkstylePackage = pd.name();
-
-            // Collect all classes in that package.
-            final SortedMap<String, ClassDoc> classDocs = new TreeMap<String, ClassDoc>();
-            for (ClassDoc classDoc : rootDoc.classes()) {
-                String packageName = classDoc.containingPackage().name();
+        // Collect the classes of all specified packages.
+        Map<String /*packageName*/, Collection<ClassDoc>> classesByPackage = new LinkedHashMap<>();
+        {
+            Map<String /*packageName*/, SortedMap<String, ClassDoc>> allClassesByPackage = CsDoclet.classesByPackage(
+                rootDoc.classes()
+            );
+            for (PackageDoc pd : rootDoc.specifiedPackages()) {
+                String checkstylePackage = pd.name();
 
-                if (packageName.equals(checkstylePackage)) {
-                    classDocs.put(classDoc.name(), classDoc);
-                }
+                SortedMap<String, ClassDoc> classDocs = allClassesByPackage.get(checkstylePackage);
+                classesByPackage.put(
+                    checkstylePackage,
+                    classDocs == null ? Collections.<ClassDoc>emptyList() : classDocs.values()
+                );
             }
+        }
+
+        // Let the option providers be evaluated in the background while the model is extracted.
+        for (Collection<ClassDoc> classDocs : classesByPackage.values()) optionProviders.prefetch(classDocs, rootDoc);
 
-            final Collection<Rule> rulesInPackage = CsDoclet.rules(
-                classDocs.values(),
+        // Derive the quickfixes first, so that each rule can resolve its references to quickfixes as soon as it is
+        // derived.
+        for (Collection<ClassDoc> classDocs : classesByPackage.values()) {
+            for (Quickfix qf : CsDoclet.quickfixes(
+                classDocs,
+                quickfixIndex,
                 rootDoc,
-                allQuickfixes,
-                ConsumerUtil.addToCollection(allOptionProviders),
-                html
-            );
+                classificationIndex,
+                fullModel,
+                html,
+                descriptions
+            )) {
+                quickfixIndex.add(qf);
+            }
+        }
+
+        // Derive the rules package by package, and meanwhile let the output pipeline generate the metadata files and
+        // the per-rule HTML documents.
+        List<List<IndexItem>>  indexEntriesByPage = new ArrayList<List<IndexItem>>();
+        List<Quickfix>         qfs                = new ArrayList<>(quickfixIndex.quickfixes());
+        OutputPipeline         pipeline           = new OutputPipeline(threads, rootDoc);
+        OutputFiles            outputFiles        = new OutputFiles(dryRun, showDiffs);
+
+        // With "-incremental", the documents whose inputs have not changed since the previous run are not rendered
+        // again.
+        PageManifest pageManifest = null;
+        if (generateHtml && incremental) {
+            StringBuilder salt = new StringBuilder(linksSalt);
+            for (Object o : new Object[] {
+                options.windowTitle,
+                options.docTitle,
+                options.header,
+                options.footer,
+                options.top,
+                options.bottom,
+                options.noTimestamp,
+                options.splitIndex,
+            }) salt.append(o).append('\n');
+            pageManifest = new PageManifest(options.destination, salt.toString(), outputFiles);
+        }
+
+        try {
+            Rule previousRule = null, currentRule = null;
+            for (Entry<String, Collection<ClassDoc>> e : classesByPackage.entrySet()) {
+                String checkstylePackage = e.getKey();
+
+                final Collection<Rule> rulesInPackage;
+                synchronized (javadocLock) {
+                    rulesInPackage = CsDoclet.rules(
+                        e.getValue(),
+                        rootDoc,
+                        classificationIndex,
+                        quickfixIndex,
+                        messageTables,
+                        propertyTables,
+                        ConsumerUtil.addToCollection(allOptionProviders),
+                        fullModel,
+                        html,
+                        descriptions
+                    );
+                }
 
-            if (!rulesInPackage.isEmpty()) {
+                if (rulesInPackage.isEmpty()) continue;
 
                 allRules.addAll(rulesInPackage);
 
-                // Generate 'checkstyle-metadata.properties' for the package.
-                if (checkstyleMetadataDotPropertiesDir != null) {
-
-                    CsDoclet.printToFile(
-                        new File(new File(
-                            checkstyleMetadataDotPropertiesDir,
-                            checkstylePackage.replace('.', File.separatorChar)
-                        ), "checkstyle-metadata.properties"),
-                        Charset.forName("ISO-8859-1"),
-                        pw -> {
-                            CheckstyleMetadataDotPropertiesGenerator.generate(rulesInPackage, pw, rootDoc);
+                CsDoclet.generateMetadata(
+                    checkstylePackage,
+                    rulesInPackage,
+                    checkstyleMetadataDotPropertiesDir,
+                    checkstyleMetadataDotXmlDir,
+                    messagesDotPropertiesDir,
+                    outputFiles,
+                    pipeline
+                );
+
+                // The per-rule document can only be rendered when the NEXT rule is known.
+                if (generateHtml) {
+                    for (Rule nextRule : rulesInPackage) {
+                        if (currentRule != null) {
+                            CsDoclet.submitPage(
+                                CsDoclet.ruleDetailPage(
+                                    CsDoclet.withContext(previousRule, currentRule, nextRule),
+                                    options,
+                                    rootDoc,
+                                    html,
+                                    outputFiles
+                                ),
+                                pageManifest,
+                                pipeline,
+                                indexEntriesByPage
+                            );
                         }
+                        previousRule = currentRule;
+                        currentRule  = nextRule;
+                    }
+                }
+            }
+
+            // Now that all rules are known, determine which rules offer each quickfix.
+            quickfixIndex.complete(allRules);
+
+            if (generateHtml) {
+
+                if (currentRule != null) {
+                    CsDoclet.submitPage(
+                        CsDoclet.ruleDetailPage(
+                            CsDoclet.withContext(previousRule, currentRule, null),
+                            options,
+                            rootDoc,
+                            html,
+                            outputFiles
+                        ),
+                        pageManifest,
+                        pipeline,
+                        indexEntriesByPage
                     );
                 }
 
-                // Generate 'checkstyle-metadata.xml' for the package.
-                if (checkstyleMetadataDotPropertiesDir != null) {
-
-                    CsDoclet.printToFile(
-                        new File(new File(
-                            checkstyleMetadataDotPropertiesDir,
-                            checkstylePackage.replace('.', File.separatorChar)
-                        ), "checkstyle-metadata.xml"),
-                        Charset.forName("UTF-8"),
-                        pw -> {
-                            CheckstyleMetadataDotXmlGenerator.generate(rulesInPackage, pw, rootDoc);
-                        }
+                // Sort quickfixes by label.
+                qfs.sort(new Comparator<Quickfix>() {
+
+                    @NotNullByDefault(false) @Override public int
+                    compare(Quickfix qf1, Quickfix qf2) {
+                        return Comparators.compareNullSafe(qf1.label(), qf2.label());
+                    }
+                });
+
+                for (ElementWithContext<Quickfix> quickfix : IterableUtil.iterableWithContext(qfs)) {
+                    CsDoclet.submitPage(
+                        CsDoclet.quickfixDetailPage(quickfix, options, rootDoc, html, outputFiles),
+                        pageManifest,
+                        pipeline,
+                        indexEntriesByPage
+                    );
+                }
+
+                for (
+                    ElementWithContext<OptionProvider> optionProvider
+                    : IterableUtil.iterableWithContext(allOptionProviders)
+                ) {
+                    CsDoclet.submitPage(
+                        CsDoclet.optionProviderDetailPage(optionProvider, options, outputFiles),
+                        pageManifest,
+                        pipeline,
+                        indexEntriesByPage
                     );
                 }
+            }
+
+            pipeline.finish();
+        } finally {
+            pipeline.close();
+            evaluator.close();
+        }
+
+        evaluator.reportTimings(rootDoc);
+
+        if (validateOnly) {
+            rootDoc.printNotice(
+                "Validated "
+                + allRules.size()
+                + " rule(s), "
+                + quickfixIndex.quickfixes().size()
+                + " quickfix(es) and "
+                + allOptionProviders.size()
+                + " option provider(s)"
+            );
+            return true;
+        }
+
+        // Generate the remaining HTML (JAVADOCish) documentation.
+        if (generateHtml) {
+
+            List<IndexEntry> indexEntries = new ArrayList<IndexEntry>();
+            for (List<IndexItem> l : indexEntriesByPage) {
+                for (IndexItem indexItem : l) indexEntries.add(indexItem.toIndexEntry());
+            }
+
+            CsDoclet.generateHtml(allRules, qfs, indexEntries, options, rootDoc, html, outputFiles);
+
+            if (pageManifest != null) {
+                if (!dryRun) pageManifest.store();
+                rootDoc.printNotice(pageManifest.reused() + " document(s) were up to date and not rendered again");
+            }
+        }
+
+        rootDoc.printNotice("HTML rendering cache: " + html.hits() + " hits, " + html.misses() + " misses");
+
+        if (modelCache != null) {
+            if (!dryRun) modelCache.flush();
+            rootDoc.printNotice("Model cache: " + modelCache.hits() + " hits, " + modelCache.misses() + " misses");
+        }
+
+        if (dryRun) {
+
+            // Report the files that the output directories have, but would no longer be generated.
+            if (checkstyleMetadataDotPropertiesDir != null) {
+                outputFiles.checkRemoved(
+                    checkstyleMetadataDotPropertiesDir,
+                    file -> "checkstyle-metadata.properties".equals(file.getName())
+                );
+            }
+            if (checkstyleMetadataDotXmlDir != null) {
+                outputFiles.checkRemoved(
+                    checkstyleMetadataDotXmlDir,
+                    file -> "checkstyle-metadata.xml".equals(file.getName())
+                );
+            }
+            if (messagesDotPropertiesDir != null) {
+                outputFiles.checkRemoved(
+                    messagesDotPropertiesDir,
+                    file -> "messages.properties".equals(file.getName())
+                );
+            }
+            if (generateHtml) {
+                final Path destination = options.destination.toPath();
+                outputFiles.checkRemoved(
+                    options.destination,
+                    file -> CsDoclet.GENERATED_HTML_FILE.matcher(
+                        destination.relativize(file.toPath()).toString().replace(File.separatorChar, '/')
+                    ).matches()
+                );
+            }
+
+            int changes = outputFiles.reportDryRun(rootDoc);
+            if (changes > 0) {
+                rootDoc.printError(changes + " generated file(s) are out of date");
+                return false;
+            }
+
+            return true;
+        }
+
+        if (outputManifest != null) outputFiles.writeManifest(outputManifest);
+
+        rootDoc.printNotice(
+            outputFiles.rewritten()
+            + " output file(s) rewritten, "
+            + outputFiles.unchanged()
+            + " output file(s) unchanged"
+        );
+
+        return true;
+    }
+
+    /**
+     * Submits the generation of the "checkstyle-metadata.properties", "checkstyle-metadata.xml" and
+     * "messages.properties" files for one package to the <var>pipeline</var>.
+     *
+     * @param checkstyleMetadataDotPropertiesDir {@code null} means: Do not generate "checkstyle-metadata.properties"
+     * @param checkstyleMetadataDotXmlDir        {@code null} means: Do not generate "checkstyle-metadata.xml"
+     * @param messagesDotPropertiesDir           {@code null} means: Do not generate "messages.properties"
+     */
+    private static void
+    generateMetadata(
+        String            checkstylePackage,
+        Collection<Rule>  rulesInPackage,
+        @Nullable File    checkstyleMetadataDotPropertiesDir,
+        @Nullable File    checkstyleMetadataDotXmlDir,
+        @Nullable File    messagesDotPropertiesDir,
+        final OutputFiles outputFiles,
+        OutputPipeline    pipeline
+    ) throws IOException {
+
+        if (
+            checkstyleMetadataDotPropertiesDir == null
+            && checkstyleMetadataDotXmlDir == null
+            && messagesDotPropertiesDir == null
+        ) return;
+
+        // The files are generated by output tasks, so take snapshots of the rules now.
+        final List<Rule> rules = Snapshots.rules(rulesInPackage);
+
+        // Generate 'checkstyle-metadata.properties' for the package.
+        if (checkstyleMetadataDotPropertiesDir != null) {
+
+            File file = new File(new File(
+                checkstyleMetadataDotPropertiesDir,
+                checkstylePackage.replace('.', File.separatorChar)
+            ), "checkstyle-metadata.properties");
+
+            pipeline.submit(errorReporter -> {
+                outputFiles.printToFile(file, Charset.forName("ISO-8859-1"), pw -> {
+                    CheckstyleMetadataDotPropertiesGenerator.generate(rules, pw, errorReporter);
+                });
+            });
+        }
+
+        // Generate 'checkstyle-metadata.xml' for the package.
+        if (checkstyleMetadataDotXmlDir != null) {
+
+            File file = new File(new File(
+                checkstyleMetadataDotXmlDir,
+                checkstylePackage.replace('.', File.separatorChar)
+            ), "checkstyle-metadata.xml");
+
+            pipeline.submit(errorReporter -> {
+                outputFiles.printToFile(file, Charset.forName("UTF-8"), pw -> {
+                    CheckstyleMetadataDotXmlGenerator.generate(rules, pw, errorReporter);
+                });
+            });
+        }
+
+        // Generate 'messages.properties' for the package.
+        if (messagesDotPropertiesDir != null) {
+
+            File file = new File(new File(
+                messagesDotPropertiesDir,
+                checkstylePackage.replace('.', File.separatorChar)
+            ), "messages.properties");
+
+            pipeline.submit(errorReporter -> {
+                outputFiles.printToFile(file, Charset.forName("ISO-8859-1"), pw -> {
+                    MessagesDotPropertiesGenerator.generate(rules, pw, errorReporter);
+                });
+            });
+        }
+    }
+
+    /**
+     * Groups the <var>classDocs</var> by their containing package, in one pass.
+     *
+     * @return Package name => (class name => class)
+     */
+    public static Map<String /*packageName*/, SortedMap<String /*className*/, ClassDoc>>
+    classesByPackage(ClassDoc[] classDocs) {
+
+        Map<String, SortedMap<String, ClassDoc>> result = new HashMap<String, SortedMap<String, ClassDoc>>();
+        for (ClassDoc classDoc : classDocs) {
+            String packageName = classDoc.containingPackage().name();
+
+            SortedMap<String, ClassDoc> classesOfPackage = result.get(packageName);
+            if (classesOfPackage == null) {
+                classesOfPackage = new TreeMap<String, ClassDoc>();
+                result.put(packageName, classesOfPackage);
+            }
+
+            classesOfPackage.put(classDoc.name(), classDoc);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param links Pairs of target URL and package list URL, as specified with "{@code -link}" and "{@code
+     *              -linkoffline}"
+     * @return      A map from package name to external javadoc target URL, which reads the package lists only when
+     *              it is accessed for the first time; package lists that cannot be read are reported as warnings
+     */
+    private static Map<String /*packageName*/, URL /*target*/>
+    lazyExternalJavadocs(final List<URL[]> links, final RootDoc rootDoc) {
+
+        return new AbstractMap<String, URL>() {
+
+            @Nullable private Map<String, URL> delegate;
+
+            @Override @Nullable public URL
+            get(@Nullable Object key) { return this.delegate().get(key); }
+
+            @Override public boolean
+            containsKey(@Nullable Object key) { return this.delegate().containsKey(key); }
 
-                // Generate 'messages.properties' for the package.
-                if (messagesDotPropertiesDir != null) {
-                    CsDoclet.printToFile(
-                        new File(new File(
-                            messagesDotPropertiesDir,
-                            checkstylePackage.replace('.', File.separatorChar)
-                        ), "messages.properties"),
-                        Charset.forName("ISO-8859-1"),
-                        pw -> {
-                            MessagesDotPropertiesGenerator.generate(rulesInPackage, pw, rootDoc);
+            @Override public Set<Entry<String, URL>>
+            entrySet() { return this.delegate().entrySet(); }
+
+            private synchronized Map<String, URL>
+            delegate() {
+
+                Map<String, URL> result = this.delegate;
+                if (result == null) {
+                    result = new HashMap<String, URL>();
+                    for (URL[] link : links) {
+                        try {
+                            Docs.readExternalJavadocs(link[0], link[1], result, rootDoc);
+                        } catch (IOException ioe) {
+                            rootDoc.printWarning("Reading the package list of \"" + link[1] + "\": " + ioe);
                         }
+                    }
+                    this.delegate = result;
+                }
+
+                return result;
+            }
+        };
+    }
+
+    /**
+     * @param location Either a URL, or a file path
+     */
+    private static URL
+    newUrl(String location) throws MalformedURLException {
+        return location.matches("\\w{2,}:.*") ? new URL(location) : new File(location).toURI().toURL();
+    }
+
+    /**
+     * Generates the HTML documents that relate to all rules and quickfixes, and the static ones ("stylesheet.css", for
+     * example).
+     *
+     * @param indexEntries The index entries contributed by the per-rule, per-quickfix and per-option-provider
+     *                     documents
+     */
+    private static void
+    generateHtml(
+        Collection<Rule>       allRules,
+        Collection<Quickfix>   allQuickfixes,
+        Collection<IndexEntry> indexEntries,
+        Options                options,
+        RootDoc                rootDoc,
+        Html                   html,
+        OutputFiles            outputFiles
+    ) throws IOException {
+
+        // Create "stylesheet.css".
+        String resourceNamePrefix = "de/unkrig/doclet/cs/html/templates/";
+        for (String resourceNameSuffix : new String[] {
+            "stylesheet.css",
+            "stylesheet2.css",
+        }) {
+            outputFiles.write(new File(options.destination, resourceNameSuffix), file -> {
+                IoUtil.copyResource(
+                    CsDoclet.class.getClassLoader(),
+                    resourceNamePrefix + resourceNameSuffix,
+                    file,
+                    true                                                  // createMissingParentDirectories
+                );
+            });
+        }
+
+        // Render "index.html" (the frameset).
+        outputFiles.write(new File(options.destination, "index.html"), file -> NoTemplate.render(
+            IndexHtml.class,
+            file,
+            indexHtml -> { indexHtml.render(options); }
+        ));
+
+        // Generate the document that is loaded into the "left frame" and displays all rules in "family" groups and
+        // the quickfixes.
+        outputFiles.write(new File(options.destination, "allrules-frame.html"), file -> NoTemplate.render(
+            AllRulesFrameHtml.class,
+            file,
+            allRulesFrameHtml -> {
+                allRulesFrameHtml.render(allRules, allQuickfixes, rootDoc, options, html);
+            }
+        ));
+
+        // Generate "overview-summary.html" - the document that is initially loaded into the "right frame" and displays
+        // all rule summaries (rule name and first sentence of description).
+        outputFiles.write(new File(options.destination, "overview-summary.html"), file -> NoTemplate.render(
+            OverviewSummaryHtml.class,
+            file,
+            overviewSummaryHtml -> {
+                overviewSummaryHtml.render(allRules, allQuickfixes, rootDoc, options, html);
+            }
+        ));
+
+        // Generate the index page(s). "IndexPages" writes the files directly, so let it write into a temporary
+        // directory, from where the files are taken over iff they changed.
+        outputFiles.writeTree(options.destination, directory -> IndexPages.createIndex(
+            directory,           // outputFile
+            indexEntries,        // entries
+            options,             // options
+            new String[] {       // nav1
+                "Overview",   "overview-summary.html",
+                "Rule",       AbstractRightFrameHtml.DISABLED,
+                "Deprecated", "deprecated-list.html",
+                "Index",      AbstractRightFrameHtml.HIGHLIT,
+                "Help",       "help-doc.html",
+            }
+        ));
+    }
+
+    /**
+     * Renders one HTML document. A page is created by the doclet thread, which computes everything that the page
+     * needs from the javadoc API, so that the page can be rendered by any thread.
+     */
+    interface Page {
+
+        /**
+         * @return The path of the document, relative to the destination directory
+         */
+        String path();
+
+        /**
+         * Does not access the javadoc API.
+         *
+         * @return A digest of everything the document depends on, except the doclet options
+         */
+        byte[] fingerprint();
+
+        /**
+         * Does not access the javadoc API.
+         *
+         * @param errorReporter Gets the errors and warnings that are detected while rendering
+         * @param indexEntries  Consumes the index entries that the document contributes
+         */
+        void render(DocErrorReporter errorReporter, Consumer<? super IndexItem> indexEntries) throws IOException;
+    }
+
+    /**
+     * Submits the rendering of the <var>page</var> to the <var>pipeline</var>, unless the <var>pageManifest</var>
+     * indicates that it is up to date.
+     *
+     * @param pageManifest       {@code null} means: Always render the <var>page</var>
+     * @param indexEntriesByPage Gets the (initially empty) list of the index entries that the <var>page</var>
+     *                           contributes
+     */
+    private static void
+    submitPage(
+        final Page                   page,
+        @Nullable final PageManifest pageManifest,
+        OutputPipeline               pipeline,
+        List<List<IndexItem>>        indexEntriesByPage
+    ) throws IOException {
+
+        // Each page gets its own list of index entries, so that their order does not depend on thread scheduling.
+        final List<IndexItem> indexEntries = new ArrayList<IndexItem>();
+        indexEntriesByPage.add(indexEntries);
+
+        if (pageManifest == null) {
+            pipeline.submit(errorReporter -> {
+                page.render(errorReporter, ConsumerUtil.addToCollection(indexEntries));
+            });
+            return;
+        }
+
+        final String path = page.path();
+        final byte[] fingerprint = page.fingerprint();
+
+        List<IndexItem> previousIndexEntries = pageManifest.reuse(path, fingerprint);
+        if (previousIndexEntries != null) {
+            indexEntries.addAll(previousIndexEntries);
+            return;
+        }
+
+        pipeline.submit(errorReporter -> {
+            DeferredDocErrorReporter diagnostics = new DeferredDocErrorReporter();
+            try {
+                page.render(diagnostics, ConsumerUtil.addToCollection(indexEntries));
+            } finally {
+                diagnostics.replay(errorReporter);
+            }
+
+            // A page whose rendering reported problems is rendered (and reports them) again in the next run.
+            if (!diagnostics.hasErrorsOrWarnings()) pageManifest.rendered(path, fingerprint, indexEntries);
+        });
+    }
+
+    private static Page
+    ruleDetailPage(
+        ElementWithContext<Rule> ruleWithContext,
+        final Options            options,
+        final RootDoc            rootDoc,
+        final Html               html,
+        final OutputFiles        outputFiles
+    ) {
+
+        // The page is rendered by an output task, so take a snapshot of the rule now.
+        final ElementWithContext<Rule> rule = CsDoclet.withContext(
+            ruleWithContext.previous(),
+            Snapshots.rule(ruleWithContext.current()),
+            ruleWithContext.next()
+        );
+
+        final ClassDoc classDoc = (ClassDoc) rule.current().ref();
+        final String   path     = rule.current().familyPlural() + '/' + classDoc.simpleTypeName() + ".html";
+        final String   name     = classDoc.name();
+
+        // Make the links to the quickfixes now, because that accesses the javadoc API.
+        final String[] quickfixLinks;
+        {
+            Quickfix[] qfs = rule.current().quickfixes();
+            quickfixLinks = new String[qfs == null ? 0 : qfs.length];
+            for (int i = 0; i < quickfixLinks.length; i++) {
+                assert qfs != null;
+                quickfixLinks[i] = CsDoclet.makeLink(classDoc, qfs[i].ref(), qfs[i].label(), html, rootDoc);
+            }
+        }
+
+        return new Page() {
+
+            @Override public String
+            path() { return path; }
+
+            @Override public byte[]
+            fingerprint() {
+
+                // The page is rendered from the snapshot only, so its content is fingerprinted - notably the rendered
+                // descriptions, which reflect the targets of their links.
+                Rule r = rule.current();
+
+                MessageDigest md = Fingerprints.sha256();
+                Fingerprints.update(
+                    md,
+                    name,
+                    r.familySingular(),
+                    r.familyPlural(),
+                    r.name(),
+                    r.simpleName(),
+                    r.shortDescription(),
+                    r.longDescription()
+                );
+
+                // The navigation links to the previous and the next rule.
+                for (Rule r2 : new Rule[] { rule.previous(), rule.next() }) {
+                    Fingerprints.update(md, r2 == null ? null : r2.simpleName());
+                }
+
+                // The links to the quickfixes and their descriptions.
+                Quickfix[] qfs = r.quickfixes();
+                Fingerprints.update(md, quickfixLinks.length);
+                for (int i = 0; i < quickfixLinks.length; i++) {
+                    assert qfs != null;
+                    Fingerprints.update(md, quickfixLinks[i], qfs[i].shortDescription());
+                }
+
+                // The properties, and the values of their option providers.
+                Fingerprints.update(md, r.properties().size());
+                for (RuleProperty property : r.properties()) {
+                    Fingerprints.update(
+                        md,
+                        property.name(),
+                        property.datatype(),
+                        property.defaultValue(),
+                        property.overrideDefaultValue(),
+                        property.shortDescription(),
+                        property.longDescription()
                     );
+
+                    OptionProvider op = property.optionProvider();
+                    if (op == null) {
+                        Fingerprints.update(md, (Object) null);
+                        continue;
+                    }
+                    Fingerprints.update(md, op.className(), op.valueOptions().length);
+                    for (ValueOption vo : op.valueOptions()) Fingerprints.update(md, vo.name());
                 }
+
+                return md.digest();
+            }
+
+            @Override public void
+            render(DocErrorReporter errorReporter, Consumer<? super IndexItem> indexEntries) throws IOException {
+                outputFiles.write(new File(options.destination, path), file -> NoTemplate.render(
+                    RuleDetailHtml.class, // templateClass
+                    file,                 // outputFile
+                    ruleHtml -> {         // renderer
+                        ruleHtml.render(rule, name, quickfixLinks, errorReporter, options, indexEntries);
+                    }
+                ));
             }
+        };
+    }
+
+    private static Page
+    quickfixDetailPage(
+        ElementWithContext<Quickfix> quickfixWithContext,
+        final Options                options,
+        final RootDoc                rootDoc,
+        final Html                   html,
+        final OutputFiles            outputFiles
+    ) {
 
-            for (Quickfix qf : CsDoclet.quickfixes(classDocs.values(), allRules, rootDoc, html)) {
-                allQuickfixes.put(qf.className(), qf);
+        // The page is rendered by an output task, so take a snapshot of the quickfix now.
+        final ElementWithContext<Quickfix> quickfix = CsDoclet.withContext(
+            quickfixWithContext.previous(),
+            Snapshots.quickfix(quickfixWithContext.current()),
+            quickfixWithContext.next()
+        );
+
+        final Doc    ref  = quickfix.current().ref();
+        final String path = "quickfixes/" + ((ClassDoc) ref).simpleTypeName() + ".html";
+
+        // Make the links to the rules now, because that accesses the javadoc API.
+        final String[] ruleLinks;
+        {
+            Rule[] rules = quickfix.current().rules();
+            ruleLinks = new String[rules == null ? 0 : rules.length];
+            for (int i = 0; i < ruleLinks.length; i++) {
+                assert rules != null;
+                ruleLinks[i] = CsDoclet.makeLink(ref, rules[i].ref(), rules[i].name(), html, rootDoc);
             }
         }
 
-        // Generate HTML (JAVADOCish) documentation.
-        if (generateHtml) {
+        return new Page() {
+
+            @Override public String
+            path() { return path; }
+
+            @Override public byte[]
+            fingerprint() {
+
+                // The page is rendered from the snapshot only, so its content is fingerprinted - notably the rendered
+                // descriptions, which reflect the targets of their links.
+                Quickfix qf = quickfix.current();
+
+                MessageDigest md = Fingerprints.sha256();
+                Fingerprints.update(md, qf.label(), qf.simpleName(), qf.shortDescription(), qf.longDescription());
+
+                // The navigation links to the previous and the next quickfix.
+                for (Quickfix qf2 : new Quickfix[] { quickfix.previous(), quickfix.next() }) {
+                    Fingerprints.update(md, qf2 == null ? null : qf2.simpleName());
+                }
+
+                // The links to the rules that offer the quickfix, and their descriptions.
+                Rule[] rules = qf.rules();
+                Fingerprints.update(md, ruleLinks.length);
+                for (int i = 0; i < ruleLinks.length; i++) {
+                    assert rules != null;
+                    Fingerprints.update(md, ruleLinks[i], rules[i].shortDescription());
+                }
+
+                return md.digest();
+            }
+
+            @Override public void
+            render(DocErrorReporter errorReporter, Consumer<? super IndexItem> indexEntries) throws IOException {
+                outputFiles.write(new File(options.destination, path), file -> NoTemplate.render(
+                    QuickfixDetailHtml.class, // templateClass
+                    file,                     // outputFile
+                    quickfixHtml -> {         // renderer
+                        quickfixHtml.render(quickfix, ruleLinks, options, indexEntries);
+                    }
+                ));
+            }
+        };
+    }
+
+    private static Page
+    optionProviderDetailPage(
+        ElementWithContext<OptionProvider> optionProviderWithContext,
+        final Options                      options,
+        final OutputFiles                  outputFiles
+    ) {
+
+        // The page is rendered by an output task, so take a snapshot of the option provider now.
+        final ElementWithContext<OptionProvider> optionProvider = CsDoclet.withContext(
+            optionProviderWithContext.previous(),
+            Snapshots.optionProvider(optionProviderWithContext.current()),
+            optionProviderWithContext.next()
+        );
+
+        final String path = "option-providers/" + optionProvider.current().className() + ".html";
+
+        return new Page() {
+
+            @Override public String
+            path() { return path; }
+
+            @Override public byte[]
+            fingerprint() {
+
+                // Like the rule and quickfix pages, the page's content is fingerprinted.
+                OptionProvider op = optionProvider.current();
+
+                MessageDigest md = Fingerprints.sha256();
+                Fingerprints.update(md, op.name(), op.className(), op.longDescription());
+                for (ValueOption vo : op.valueOptions()) {
+                    Fingerprints.update(md, vo.name(), vo.shortDescription(), vo.longDescription());
+                }
+
+                // The navigation links to the previous and the next option provider.
+                Fingerprints.update(md, optionProvider.previous() == null, optionProvider.next() == null);
 
-            // Sort quickfixes by label.
-            List<Quickfix> qfs = new ArrayList<>(allQuickfixes.values());
-            qfs.sort(new Comparator<Quickfix>() {
+                return md.digest();
+            }
 
-                @NotNullByDefault(false) @Override public int
-                compare(Quickfix qf1, Quickfix qf2) { return Comparators.compareNullSafe(qf1.label(), qf2.label()); }
-            });
+            @Override public void
+            render(DocErrorReporter errorReporter, Consumer<? super IndexItem> indexEntries) throws IOException {
+                outputFiles.write(new File(options.destination, path), file -> NoTemplate.render(
+                    OptionProviderDetailHtml.class, // templateClass
+                    file,                           // outputFile
+                    optionProviderHtml -> {         // renderer
+                        optionProviderHtml.render(optionProvider, options, indexEntries);
+                    }
+                ));
+            }
+        };
+    }
 
-            CsDoclet.generateHtml(allRules, qfs, allOptionProviders, options, rootDoc, html);
+    /**
+     * @return An HTML link from <var>from</var> to <var>to</var>, or just the <var>label</var> if the link cannot be
+     *         made
+     */
+    private static String
+    makeLink(Doc from, Doc to, String label, Html html, RootDoc rootDoc) {
+        try {
+            return html.makeLink(
+                from,  // from
+                to,    // to
+                true,  // plain
+                label, // label
+                null,  // target
+                rootDoc
+            );
+        } catch (Longjump l) {
+            return label;
         }
+    }
 
-        return true;
+    private static <T> ElementWithContext<T>
+    withContext(@Nullable final T previous, final T current, @Nullable final T next) {
+
+        return new ElementWithContext<T>() {
+            @Override @Nullable public T previous() { return previous; }
+            @Override public T           current()  { return current;  }
+            @Override @Nullable public T next()     { return next;     }
+        };
     }
 
     /**
-     * @param location Either a URL, or a file path
+     * An {@link Html} that holds a lock while executing its methods, because these access the javadoc API, which is
+     * not thread-safe.
      */
-    private static URL
-    newUrl(String location) throws MalformedURLException {
-        return location.matches("\\w{2,}:.*") ? new URL(location) : new File(location).toURI().toURL();
-    }
+    private static
+    class SynchronizedHtml extends Html {
+
+        protected final Object lock;
+
+        SynchronizedHtml(Object lock, LinkMaker linkMaker) {
+            super(linkMaker);
+            this.lock = lock;
+        }
 
-    protected static boolean
-    isSubclassOfAnyOf(ClassDoc subject, ClassDoc[] baseClasses) {
+        @Override public String
+        fromTags(Tag[] tags, Doc ref, RootDoc rootDoc) throws Longjump {
+            synchronized (this.lock) { return super.fromTags(tags, ref, rootDoc); }
+        }
 
-        for (ClassDoc bc : baseClasses) {
-            if (Docs.isSubclassOf(subject, bc)) return true;
+        @Override @Nullable public String
+        optionalTag(Doc doc, String tagName, RootDoc rootDoc) throws Longjump {
+            synchronized (this.lock) { return super.optionalTag(doc, tagName, rootDoc); }
         }
 
-        return false;
+        @Override public String
+        makeLink(
+            Doc              from,
+            Doc              to,
+            boolean          plain,
+            @Nullable String label,
+            @Nullable String target,
+            RootDoc          rootDoc
+        ) throws Longjump {
+            synchronized (this.lock) { return super.makeLink(from, to, plain, label, target, rootDoc); }
+        }
     }
 
     /**
-     * Generates all HTML documents, including the static ones ("stylesheet.css", for example).
-     * @param allOptionProviders TODO
+     * A {@link SynchronizedHtml} that remembers the HTML that it rendered from doc comments, because the same comments
+     * are typically rendered several times, e.g. the comments of enum constants that are shared by many properties.
+     * Its lifetime is one doclet run.
+     * <p>
+     *   The rendered HTML is only softly referenced, so that it can be reclaimed under memory pressure (and is then
+     *   rendered again when needed). Comments that cannot be rendered are remembered, so that the error is reported
+     *   only once.
+     * </p>
      */
-    private static void
-    generateHtml(
-        Collection<Rule>           allRules,
-        Collection<Quickfix>       allQuickfixes,
-        Collection<OptionProvider> allOptionProviders,
-        Options                    options,
-        RootDoc                    rootDoc,
-        Html                       html
-    ) throws IOException {
+    private static
+    class MemoizingHtml extends SynchronizedHtml {
 
-        // Create "stylesheet.css".
-        String resourceNamePrefix = "de/unkrig/doclet/cs/html/templates/";
-        for (String resourceNameSuffix : new String[] {
-            "stylesheet.css",
-            "stylesheet2.css",
-        }) {
-            IoUtil.copyResource(
-                CsDoclet.class.getClassLoader(),
-                resourceNamePrefix + resourceNameSuffix,
-                new File(options.destination, resourceNameSuffix),
-                true                                                  // createMissingParentDirectories
-            );
-        }
+        // These fields are guarded by "this.lock".
+        private final Map<TagsKey, SoftReference<String>> fromTagsCache    = new HashMap<>();
+        private final Set<TagsKey>                        fromTagsFailed   = new HashSet<>();
+        private final Map<Doc, Map<String, String>>       optionalTagCache = new IdentityHashMap<>();
+        private int                                       hits, misses;
 
-        final Collection<IndexEntry>       indexEntries       = new ArrayList<IndexEntry>();
-        final Consumer<? super IndexEntry> indexEntryConsumer = ConsumerUtil.addToCollection(indexEntries);
+        MemoizingHtml(Object lock, LinkMaker linkMaker) { super(lock, linkMaker); }
 
-        // Render "index.html" (the frameset).
-        NoTemplate.render(
-            IndexHtml.class,
-            new File(options.destination, "index.html"),
-            indexHtml -> { indexHtml.render(options); }
-        );
+        @Override public String
+        fromTags(Tag[] tags, Doc ref, RootDoc rootDoc) throws Longjump {
 
-        // Render the per-rule document for all rules.
-        for (ElementWithContext<Rule> rule : IterableUtil.iterableWithContext(allRules)) {
+            synchronized (this.lock) {
 
-            NoTemplate.render(
-                RuleDetailHtml.class, // templateClass
-                new File(             // outputFile
-                    options.destination,
-                    rule.current().familyPlural() + '/' + ((ClassDoc) rule.current().ref()).simpleTypeName() + ".html"
-                ),
-                ruleHtml -> {         // renderer
-                    ruleHtml.render(rule, html, rootDoc, options, indexEntryConsumer);
-                }
-            );
-        }
+                TagsKey key = new TagsKey(tags, ref);
 
-        // Generate documentation for quickfixes.
-        for (ElementWithContext<Quickfix> quickfix : IterableUtil.iterableWithContext(allQuickfixes)) {
+                SoftReference<String> sr     = this.fromTagsCache.get(key);
+                String                result = sr == null ? null : sr.get();
+                if (result != null) {
+                    this.hits++;
+                    return result;
+                }
+                if (this.fromTagsFailed.contains(key)) {
+                    this.hits++;
+                    throw new Longjump();
+                }
 
-            NoTemplate.render(
-                QuickfixDetailHtml.class, // templateClass
-                new File(                 // outputFile
-                    options.destination,
-                    "quickfixes/" + ((ClassDoc) quickfix.current().ref()).simpleTypeName() + ".html"
-                ),
-                quickfixHtml -> {         // renderer
-                    quickfixHtml.render(quickfix, html, rootDoc, options, indexEntryConsumer);
+                this.misses++;
+                try {
+                    result = super.fromTags(tags, ref, rootDoc);
+                } catch (Longjump l) {
+                    this.fromTagsFailed.add(key);
+                    throw l;
                 }
-            );
+                this.fromTagsCache.put(key, new SoftReference<String>(result));
+                return result;
+            }
         }
 
-        // Generate documentation for option providers.
-        for (ElementWithContext<OptionProvider> optionProvider : IterableUtil.iterableWithContext(allOptionProviders)) {
+        @Override @Nullable public String
+        optionalTag(Doc doc, String tagName, RootDoc rootDoc) throws Longjump {
 
-            NoTemplate.render(
-                OptionProviderDetailHtml.class, // templateClass
-                new File(                       // outputFile
-                    options.destination,
-                    "option-providers/" + optionProvider.current().className() + ".html"
-                ),
-                optionProviderHtml -> {         // renderer
-                    optionProviderHtml.render(optionProvider, html, rootDoc, options, indexEntryConsumer);
+            synchronized (this.lock) {
+
+                Map<String, String> m = this.optionalTagCache.get(doc);
+                if (m == null) this.optionalTagCache.put(doc, (m = new HashMap<String, String>()));
+
+                if (m.containsKey(tagName)) {
+                    this.hits++;
+                    return m.get(tagName);
                 }
-            );
+
+                this.misses++;
+                String result = super.optionalTag(doc, tagName, rootDoc);
+                m.put(tagName, result);
+                return result;
+            }
         }
 
-        // Generate the document that is loaded into the "left frame" and displays all rules in "family" groups and
-        // the quickfixes.
-        NoTemplate.render(
-            AllRulesFrameHtml.class,
-            new File(options.destination, "allrules-frame.html"),
-            allRulesFrameHtml -> {
-                allRulesFrameHtml.render(allRules, allQuickfixes, rootDoc, options, html);
+        /** @return How many renderings were taken from the cache */
+        public int hits() { synchronized (this.lock) { return this.hits; } }
+
+        /** @return How many renderings were not taken from the cache */
+        public int misses() { synchronized (this.lock) { return this.misses; } }
+
+        /**
+         * Identifies a sequence of tags by the identities of the tags (and not of the array, because the javadoc API
+         * may return a new array on each invocation), plus the identity of the referring {@link Doc}.
+         */
+        private static
+        class TagsKey {
+
+            private final Tag[] tags;
+            private final Doc   ref;
+
+            TagsKey(Tag[] tags, Doc ref) {
+                this.tags = tags.clone();
+                this.ref  = ref;
             }
-        );
 
-        // Generate "overview-summary.html" - the document that is initially loaded into the "right frame" and displays
-        // all rule summaries (rule name and first sentence of description).
-        NoTemplate.render(
-            OverviewSummaryHtml.class,
-            new File(options.destination, "overview-summary.html"),
-            overviewSummaryHtml -> {
-                overviewSummaryHtml.render(allRules, allQuickfixes, rootDoc, options, html);
+            @Override public int
+            hashCode() {
+                int result = System.identityHashCode(this.ref);
+                for (Tag t : this.tags) result = 31 * result + System.identityHashCode(t);
+                return result;
             }
-        );
 
-        // Generate the index page(s).
-        IndexPages.createIndex(
-            options.destination, // outputFile
-            indexEntries,        // entries
-            options,             // options
-            new String[] {       // nav1
-                "Overview",   "overview-summary.html",
-                "Rule",       AbstractRightFrameHtml.DISABLED,
-                "Deprecated", "deprecated-list.html",
-                "Index",      AbstractRightFrameHtml.HIGHLIT,
-                "Help",       "help-doc.html",
+            @Override public boolean
+            equals(@Nullable Object o) {
+
+                if (!(o instanceof TagsKey)) return false;
+                TagsKey that = (TagsKey) o;
+
+                if (that.ref != this.ref || that.tags.length != this.tags.length) return false;
+                for (int i = 0; i < this.tags.length; i++) {
+                    if (that.tags[i] != this.tags[i]) return false;
+                }
+                return true;
             }
-        );
+        }
     }
 
     /**
-     * Creates the named {@code file}, lets the {@code printer} print text to it, and closes the file.
+     * Converts HTML to plain text in one pass, i.e. in linear time:
+     * <ul>
+     *   <li>{@code <code>} and {@code </code>} tags are removed (but not the enclosed text)</li>
+     *   <li>{@code <br>}, {@code <p>} and {@code </p>} tags are replaced with whitespace</li>
+     *   <li>Character entities ({@code &lt;}, {@code &#160;}, {@code &#xA0;}, ...) are decoded</li>
+     *   <li>Each sequence of whitespace characters is collapsed into one space</li>
+     * </ul>
+     * <p>
+     *   Any other markup is copied, and a warning is reported for each start tag and unknown entity, with its offset
+     *   within <var>s</var>.
+     * </p>
      *
-     * @param charset The charset to be used for printing
-     * @throws EX     The throwable that the {@code printer} may throw
+     * @return              The HTML document {@code s}, converted to plain text
+     * @param position      Merely used when printing warnings
+     * @param errorReporter Merely used when printing warnings
      */
-    public static <EX extends Throwable> void
-    printToFile(
-        File                                         file,
-        Charset                                      charset,
-        ConsumerWhichThrows<? super PrintWriter, EX> printer
-    ) throws IOException, EX {
+    public static String
+    htmlToPlainText(String s, SourcePosition position, DocErrorReporter errorReporter) {
+
+        final int     n          = s.length();
+        StringBuilder sb         = new StringBuilder(n);
+        boolean       whitespace = false; // Whether whitespace is pending.
+        int           gt         = -2;    // The position of the next '>', or -1 if there is none, or -2 if unknown.
+
+        for (int i = 0; i < n;) {
+            char c = s.charAt(i);
 
-        File directory = file.getParentFile();
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\u000b' || c == '\f' || c == '\r') {
+                whitespace = true;
+                i++;
+                continue;
+            }
 
-        directory.mkdirs();
+            TAG:
+            if (c == '<') {
 
-        File newFile = new File(directory, "." + file.getName() + ".new");
+                int     j       = i + 1;
+                boolean closing = j < n && s.charAt(j) == '/';
+                if (closing) j++;
 
-        PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(newFile), charset));
-        try {
-            printer.consume(pw);
-            pw.close();
-            if (file.exists() && !file.delete()) {
-                throw new IOException("Could not delete existing file '" + file + "'");
+                int nameStart = j;
+                while (j < n && Character.isLetterOrDigit(s.charAt(j))) j++;
+                if (j == nameStart || !Character.isLetter(s.charAt(nameStart))) break TAG;
+
+                if (gt != -1 && gt < j) gt = s.indexOf('>', j);
+                if (gt == -1) break TAG;
+
+                String tagName = s.substring(nameStart, j).toLowerCase(Locale.ENGLISH);
+                if ("code".equals(tagName)) {
+                    ;
+                } else
+                if ("br".equals(tagName) || "p".equals(tagName)) {
+                    whitespace = true;
+                } else
+                {
+                    String tag = s.substring(i, gt + 1);
+                    if (!closing) {
+                        errorReporter.printWarning(
+                            position,
+                            "'" + tag + "' at offset " + i + " cannot be reasonably converted to plain text"
+                        );
+                    }
+                    if (whitespace) sb.append(' ');
+                    whitespace = false;
+                    sb.append(tag);
+                }
+                i = gt + 1;
+                continue;
             }
-            if (!newFile.renameTo(file)) {
-                throw new IOException("Could not rename '" + newFile + "' to '" + file + "'");
+
+            ENTITY:
+            if (c == '&') {
+
+                int semicolon = i + 1;
+                while (
+                    semicolon < n
+                    && semicolon - i <= CsDoclet.MAX_ENTITY_LENGTH
+                    && (Character.isLetterOrDigit(s.charAt(semicolon)) || s.charAt(semicolon) == '#')
+                ) semicolon++;
+                if (semicolon == i + 1 || semicolon == n || s.charAt(semicolon) != ';') break ENTITY;
+
+                int    cp     = CsDoclet.decodeEntity(s.substring(i + 1, semicolon));
+                if (cp == -1) {
+                    errorReporter.printWarning(
+                        position,
+                        "Unknown entity '" + s.substring(i, semicolon + 1) + "' at offset " + i
+                    );
+                    break ENTITY;
+                }
+
+                if (cp == 0xa0) {
+                    whitespace = true;
+                } else {
+                    if (whitespace) sb.append(' ');
+                    whitespace = false;
+                    sb.appendCodePoint(cp);
+                }
+                i = semicolon + 1;
+                continue;
             }
-        } catch (RuntimeException re) {
-            try { pw.close(); } catch (Exception e2) {}
-            newFile.delete();
-
-            throw re;
-        } catch (Error e) {     // SUPPRESS CHECKSTYLE IllegalCatch
-            try { pw.close(); } catch (Exception e2) {}
-            newFile.delete();
-
-            throw e;
-        } catch (Throwable t) { // SUPPRESS CHECKSTYLE IllegalCatch
-            try { pw.close(); } catch (Exception e2) {}
-            newFile.delete();
-
-            @SuppressWarnings("unchecked") EX tmp = (EX) t;
-            throw tmp;
+
+            if (whitespace) sb.append(' ');
+            whitespace = false;
+            sb.append(c);
+            i++;
         }
+        if (whitespace) sb.append(' ');
+
+        return sb.toString();
     }
+    private static final int MAX_ENTITY_LENGTH = 10;
 
     /**
-     * @return         The HTML document {@code s}, converted to plain text
-     * @param position Merely used when printing warnings
-     * @param rootDoc  Merely used when printing warnings
+     * @param entity The text between "&amp;" and ";", e.g. "{@code lt}", "{@code #60}" or "{@code #x3C}"
+     * @return       The code point, or -1 if the <var>entity</var> is unknown or invalid
      */
-    public static String
-    htmlToPlainText(String s, SourcePosition position, RootDoc rootDoc) {
-
-        for (;;) {
-            Matcher matcher = CsDoclet.CODE_BLOCK.matcher(s);
-            if (matcher.find()) {
-                s = matcher.group(1) + matcher.group(2) + s.substring(matcher.end());
-            } else
-            {
-                break;
-            }
-        }
+    private static int
+    decodeEntity(String entity) {
 
-        {
-            Matcher matcher = CsDoclet.CONTAINS_HTML_MARKUP.matcher(s);
-            if (matcher.find()) {
-                rootDoc.printWarning(
-                    position,
-                    "'" + matcher.group() + "' cannot be reasonably converted to plain text"
+        if (entity.startsWith("#")) {
+            try {
+                int cp = (
+                    entity.startsWith("#x") || entity.startsWith("#X")
+                    ? Integer.parseInt(entity.substring(2), 16)
+                    : Integer.parseInt(entity.substring(1))
                 );
+                return Character.isValidCodePoint(cp) ? cp : -1;
+            } catch (NumberFormatException nfe) {
+                return -1;
             }
         }
 
-        return s;
+        Integer cp = CsDoclet.ENTITIES.get(entity);
+        return cp == null ? -1 : cp;
+    }
+    private static final Map<String /*name*/, Integer /*codePoint*/> ENTITIES;
+    static {
+        Map<String, Integer> m = new HashMap<String, Integer>();
+        m.put("lt",   (int) '<');
+        m.put("gt",   (int) '>');
+        m.put("amp",  (int) '&');
+        m.put("quot", (int) '"');
+        m.put("apos", (int) '\'');
+        m.put("nbsp", 0xa0);
+        ENTITIES = Collections.unmodifiableMap(m);
     }
-    private static final Pattern
-    CONTAINS_HTML_MARKUP = Pattern.compile("<\\s*\\w.*>", Pattern.CASE_INSENSITIVE);
-    private static final Pattern
-    CODE_BLOCK = Pattern.compile("(.*)<code>(.*?)</code>", Pattern.CASE_INSENSITIVE);
 
     /**
      * @return The data type guessed from the method's argument type
@@ -667,6 +1639,9 @@ class CsDoclet {
         /** @return The doc comment of the Java element that implements this rule */
         Doc ref();
 
+        /** @return Where errors related to this rule are reported */
+        SourcePosition position();
+
         /** @return The family to which this rule belongs ("check" or "filter") */
         String familySingular();
 
@@ -712,33 +1687,41 @@ class CsDoclet {
 
     /**
      * Derives a collection of CheckStyle rules from the given {@code classDocs}.
+     * <p>
+     *   Must only be invoked by the doclet thread, because it accesses the javadoc API.
+     * </p>
      *
      * @param usedOptionProviders Gets the option providers used by the rules
+     * @param generateHtml        Whether to compute the fields that only the HTML documentation uses; if {@code
+     *                            false}, these fields are empty
      */
     public static Collection<Rule>
     rules(
         final Collection<ClassDoc>                  classDocs,
         RootDoc                                     rootDoc,
-        Map<String /*quickfixClassName*/, Quickfix> allQuickfixes,
+        ClassificationIndex                         classificationIndex,
+        QuickfixIndex                               quickfixIndex,
+        MessageTables                               messageTables,
+        PropertyTables                              propertyTables,
         Consumer<? super OptionProvider>            usedOptionProviders,
-        Html                                        html
+        boolean                                     generateHtml,
+        Html                                        html,
+        Descriptions                                descriptions
     ) {
 
-        ClassDoc[] checkClasses  = CsDoclet.getCheckClasses(rootDoc);
-        ClassDoc[] filterClasses = CsDoclet.getFilterClasses(rootDoc);
-
         List<Rule> rules = new ArrayList<CsDoclet.Rule>();
         for (final ClassDoc classDoc : classDocs) {
 
             AnnotationDesc ra = Annotations.get(classDoc, "Rule");
             if (ra == null) continue;
 
-            String familySingular, familyPlural;
-            if (CsDoclet.isSubclassOfAnyOf(classDoc, checkClasses)) {
+            String         familySingular, familyPlural;
+            Classification classification = classificationIndex.classify(classDoc);
+            if (classification == Classification.CHECK) {
                 familySingular = "check";
                 familyPlural   = "checks";
             } else
-            if (CsDoclet.isSubclassOfAnyOf(classDoc, filterClasses)) {
+            if (classification == Classification.FILTER) {
                 familySingular = "filter";
                 familyPlural   = "filters";
             } else
@@ -752,9 +1735,20 @@ class CsDoclet {
 
             try {
 
-                rules.add(
-                    CsDoclet.rule(ra, classDoc, rootDoc, familySingular, familyPlural, allQuickfixes, usedOptionProviders, html)
-                );
+                rules.add(CsDoclet.rule(
+                    ra,
+                    classDoc,
+                    rootDoc,
+                    familySingular,
+                    familyPlural,
+                    quickfixIndex,
+                    messageTables,
+                    propertyTables,
+                    usedOptionProviders,
+                    generateHtml,
+                    html,
+                    descriptions
+                ));
             } catch (Longjump l) {
                 ; // SUPPRESS CHECKSTYLE AvoidHidingCause
             }
@@ -763,72 +1757,30 @@ class CsDoclet {
         return rules;
     }
 
-    private static ClassDoc[]
-    getCheckClasses(RootDoc rootDoc) {
-
-        return CsDoclet.classesNamed(
-            rootDoc,
-            "com.puppycrawl.tools.checkstyle.api.AbstractCheck", // <= Supersedes "Check" since CS 6.19
-            "com.puppycrawl.tools.checkstyle.api.Check"
-        );
-    }
-
-    private static ClassDoc[]
-    getFilterClasses(RootDoc rootDoc) {
-
-        return CsDoclet.classesNamed(
-            rootDoc,
-            "com.puppycrawl.tools.checkstyle.TreeWalkerFilter", // <= Since CS 8.2
-            "com.puppycrawl.tools.checkstyle.api.Filter"
-        );
-    }
-
-    private static ClassDoc[]
-    getQuickfixClasses(final RootDoc rootDoc) {
-        return CsDoclet.classesNamed(
-            rootDoc,
-            "net.sf.eclipsecs.ui.quickfixes.ICheckstyleMarkerResolution"
-        );
-    }
-
-    private static ClassDoc
-    getIOptionProviderClass(RootDoc rootDoc) throws Longjump {
-        return Docs.classNamed(rootDoc, "net.sf.eclipsecs.core.config.meta.IOptionProvider");
-    }
-
-    /**
-     * @return Classes that that have one of the <var>classNames</var> (may be empty)
-     */
-    private static ClassDoc[]
-    classesNamed(RootDoc rootDoc, String... classNames) {
-
-        List<ClassDoc> result = new ArrayList<>();
-
-        for (String cn : classNames) {
-            ClassDoc cd = rootDoc.classNamed(cn);
-            if (cd != null) result.add(cd);
-        }
-
-        // Notice that "RootDoc.classNamed()" finds only classes that are in one of the configured packages, or were
-        // implicitly loaded through the "-classpath". Classes that are on the "-classpath", but are not referenced
-        // by other classes are NOT found! So we DO NOT check for "result.isEmpty()" here.
-
-        return result.toArray(new ClassDoc[result.size()]);
-    }
-
     /**
      * Derives a collection of quickfixes from the given {@code classDocs}.
+     * <p>
+     *   Must only be invoked by the doclet thread, because it accesses the javadoc API.
+     * </p>
+     *
+     * @param generateHtml Whether to compute the fields that only the HTML documentation uses; if {@code false},
+     *                     these fields are empty
      */
     public static Collection<Quickfix>
-    quickfixes(final Collection<ClassDoc> classDocs, Collection<Rule> allRules, RootDoc rootDoc, Html html) {
-
-        ClassDoc[]
-        quickfixInterfaces = CsDoclet.getQuickfixClasses(rootDoc);
+    quickfixes(
+        final Collection<ClassDoc> classDocs,
+        final QuickfixIndex        quickfixIndex,
+        RootDoc                    rootDoc,
+        ClassificationIndex        classificationIndex,
+        final boolean              generateHtml,
+        Html                       html,
+        final Descriptions         descriptions
+    ) {
 
         List<Quickfix> quickfixes = new ArrayList<Quickfix>();
         for (final ClassDoc classDoc : classDocs) {
 
-            if (!CsDoclet.isSubclassOfAnyOf(classDoc, quickfixInterfaces)) continue;
+            if (classificationIndex.classify(classDoc) != Classification.QUICKFIX) continue;
 
             if (classDoc.isAbstract()) continue;
 
@@ -840,40 +1792,26 @@ class CsDoclet {
                 final String quickfixLabel = s != null ? s : classDoc.qualifiedTypeName();
                 final String simpleName    = classDoc.simpleTypeName();
 
-                final String
-                quickfixShortDescription = html.fromTags(
-                    classDoc.firstSentenceTags(),
-                    classDoc,
-                    rootDoc
-                );
-
-                final String
-                quickfixLongDescription = html.fromTags(
-                    classDoc.inlineTags(),
-                    classDoc,
-                    rootDoc
-                );
+                // Render the descriptions now, so that a quickfix with a broken doc comment is reported and skipped.
+                descriptions.shortDescription(classDoc, classDoc);
+                if (generateHtml) descriptions.longDescription(classDoc, classDoc);
 
                 quickfixes.add(new Quickfix() {
-                    @Override public Doc              ref()              { return classDoc;                 }
-                    @Override @Nullable public String className()        { return className;                }
-                    @Override public String           label()            { return quickfixLabel;            }
-                    @Override public String           simpleName()       { return simpleName;               }
-                    @Override public String           shortDescription() { return quickfixShortDescription; }
-                    @Override public String           longDescription()  { return quickfixLongDescription;  }
-
-                    @Override @Nullable public Rule[]
-                    rules() {
+                    @Override public Doc              ref()        { return classDoc;      }
+                    @Override @Nullable public String className()  { return className;     }
+                    @Override public String           label()      { return quickfixLabel; }
+                    @Override public String           simpleName() { return simpleName;    }
 
-                        // Compute the set of checks lazily here, because the "allRules" map is not complete initially.
+                    @Override public String
+                    shortDescription() { return descriptions.renderedShortDescription(classDoc, classDoc); }
 
-                        List<Rule> tmp = new ArrayList<Rule>();
-                        for (Rule rule : allRules) {
-                            Quickfix[] qfs = rule.quickfixes();
-                            if (qfs != null && CsDoclet.arrayContains(qfs, this)) tmp.add(rule);
-                        }
-                        return tmp.toArray(new Rule[tmp.size()]);
+                    @Override public String
+                    longDescription() {
+                        return generateHtml ? descriptions.renderedLongDescription(classDoc, classDoc) : "";
                     }
+
+                    @Override @Nullable public Rule[]
+                    rules() { return quickfixIndex.rulesOf(this); }
                 });
             } catch (Longjump l) {}
         }
@@ -881,14 +1819,6 @@ class CsDoclet {
         return quickfixes;
     }
 
-    public static <T> boolean
-    arrayContains(T[] haystack, T needle) {
-        for (int i = 0; i < haystack.length; i++) {
-            if (ObjectUtil.equals(haystack[i], needle)) return true;
-        }
-        return false;
-    }
-
     /**
      * Parses a CheckStyle rule.
      */
@@ -899,9 +1829,13 @@ class CsDoclet {
         RootDoc                                     rootDoc,
         final String                                familySingular,
         String                                      familyPlural,
-        Map<String /*quickfixClassName*/, Quickfix> allQuickfixes,
+        QuickfixIndex                               quickfixIndex,
+        MessageTables                               messageTables,
+        PropertyTables                              propertyTables,
         Consumer<? super OptionProvider>            usedOptionProviders,
-        Html                                        html
+        final boolean                               generateHtml,
+        Html                                        html,
+        final Descriptions                          descriptions
     ) throws Longjump {
 
         final String   group              = Annotations.getElementValue(ruleAnnotation, "group",        String.class);
@@ -910,8 +1844,6 @@ class CsDoclet {
         final String   name               = Annotations.getElementValue(ruleAnnotation, "name",         String.class);
         final String   internalName       = classDoc.qualifiedTypeName();
         final String   parent             = Annotations.getElementValue(ruleAnnotation, "parent",       String.class);
-        final String   shortDescription   = html.fromTags(classDoc.firstSentenceTags(), classDoc, rootDoc);
-        final String   longDescription    = html.fromTags(classDoc.inlineTags(), classDoc, rootDoc);
         final String[] quickfixClassNames = Annotations.getElementValue(ruleAnnotation, "quickfixes",   String[].class);
         final Boolean  hasSeverity        = Annotations.getElementValue(ruleAnnotation, "hasSeverity",  Boolean.class);
 
@@ -920,61 +1852,42 @@ class CsDoclet {
         assert name      != null;
         assert parent    != null;
 
-        final Collection<RuleProperty> properties = CsDoclet.properties(classDoc, rootDoc, html, usedOptionProviders);
-
-        final SortedMap<String, String> messages = new TreeMap<String, String>();
-        for (ClassDoc cd = classDoc; cd != null; cd = cd.superclass()) {
-            for (FieldDoc fd : cd.fields(false)) {
-
-                AnnotationDesc a = Annotations.get(fd, "Message");
-                if (a == null) continue;
-
-                final String messageKey;
-                {
-                    Object o = fd.constantValue();
-                    if (o == null) {
-                        rootDoc.printError(
-                            fd.position(),
-                            "Field '" + fd.name() + "' has a '@Message' annotation, but not a constant value"
-                        );
-                        continue;
-                    }
-
-                    if (!(o instanceof String)) {
-                        rootDoc.printError(
-                            fd.position(),
-                            "Constant '" + fd.name() + "' must have type 'String'"
-                        );
-                        continue;
-                    }
-
-                    messageKey = (String) o;
-                }
-
-                String message = Annotations.getElementValue(a, "value", String.class);
-                if (message == null) {
-                    rootDoc.printError(fd.position(), "Message lacks a default text");
-                    continue;
-                }
-
-                String orig = messages.put(messageKey, message);
-
-                if (orig != null && !message.equals(orig)) {
-                    rootDoc.printError(fd.position(), (
-                        "Inconsistent redefinition of message \""
-                        + messageKey
-                        + "\": Previously \""
-                        + orig
-                        + "\", now \""
-                        + message
+        // Render the descriptions now, so that a rule with a broken doc comment is reported and skipped.
+        descriptions.longDescription(classDoc, classDoc);
+        if (generateHtml) descriptions.shortDescription(classDoc, classDoc);
+
+        final Collection<RuleProperty> properties = propertyTables.get(classDoc, rootDoc, html, usedOptionProviders);
+
+        // Resolve the references to quickfixes; all quickfixes are known at this point.
+        final Quickfix[] quickfixes;
+        if (quickfixClassNames == null) {
+            quickfixes = null;
+        } else {
+            List<Quickfix> tmp = new ArrayList<Quickfix>();
+            for (String qfcn : quickfixClassNames) {
+                Quickfix qf = quickfixIndex.get(qfcn);
+                if (qf == null) {
+                    rootDoc.printWarning(
+                        familySingular
+                        + " \""
+                        + name
+                        + "\" refers to no-existent quickfix class \"" +
+                        qfcn
                         + "\""
-                    ));
+                    );
+                } else {
+                    tmp.add(qf);
                 }
             }
+            quickfixes = tmp.toArray(new Quickfix[tmp.size()]);
         }
 
+        final SortedMap<String, String> messages = messageTables.get(classDoc, rootDoc);
+        final SourcePosition            position = classDoc.position();
+
         return new Rule() {
             @Override public Doc                       ref()              { return classDoc;         }
+            @Override public SourcePosition            position()         { return position;         }
             @Override public String                    familySingular()   { return familySingular;   }
             @Override public String                    familyPlural()     { return familyPlural;     }
             @Override public String                    group()            { return group;            }
@@ -983,37 +1896,20 @@ class CsDoclet {
             @Override public String                    name()             { return name;             }
             @Override public String                    internalName()     { return internalName;     }
             @Override public String                    parent()           { return parent;           }
-            @Override public String                    shortDescription() { return shortDescription; }
-            @Override public String                    longDescription()  { return longDescription;  }
             @Override public Collection<RuleProperty>  properties()       { return properties;       }
             @Override @Nullable public Boolean         hasSeverity()      { return hasSeverity;      }
             @Override public SortedMap<String, String> messages()         { return messages;         }
+            @Override @Nullable public Quickfix[]      quickfixes()       { return quickfixes;       }
 
-            @Override @Nullable public Quickfix[]
-            quickfixes() {
+            @Override public String
+            shortDescription() {
 
-                // Compute the set of quickfixes lazily here, because the "allQuickfixes" map is not complete initially.
-
-                if (quickfixClassNames == null) return null;
-
-                List<Quickfix> tmp = new ArrayList<Quickfix>();
-                for (String qfcn : quickfixClassNames) {
-                    Quickfix qf = allQuickfixes.get(qfcn);
-                    if (qf == null) {
-                        rootDoc.printWarning(
-                            familySingular
-                            + " \""
-                            + name
-                            + "\" refers to no-existent quickfix class \"" +
-                            qfcn
-                            + "\""
-                        );
-                    } else {
-                        tmp.add(qf);
-                    }
-                }
-                return tmp.toArray(new Quickfix[tmp.size()]);
+                // The short description appears only in the HTML documentation.
+                return generateHtml ? descriptions.renderedShortDescription(classDoc, classDoc) : "";
             }
+
+            @Override public String
+            longDescription() { return descriptions.renderedLongDescription(classDoc, classDoc); }
         };
     }
 
@@ -1030,6 +1926,9 @@ class CsDoclet {
         /** @return The doc comment from which this property originates; useful for resolution of relative names */
         Doc ref();
 
+        /** @return Where errors related to this property are reported */
+        SourcePosition position();
+
         /** @return The default localized name */
         String name();
 
@@ -1128,32 +2027,65 @@ class CsDoclet {
     }
 
     /**
+     * Parses the properties that the <var>classDoc</var> itself declares; see {@link PropertyTables} for the
+     * properties including the inherited ones.
+     * <p>
+     *   Must only be invoked by the doclet thread, because it accesses the javadoc API.
+     * </p>
+     *
      * @param usedOptionProviders Consumers any option provider (ENUM type or {@code
      *                            net.sf.eclipsecs.core.config.meta.IOptionProvider} needed by the properties
+     * @param generateHtml        Whether to compute the fields that only the HTML documentation uses; if {@code
+     *                            false}, these fields are empty
      */
     public static Collection<RuleProperty>
-    properties(ClassDoc classDoc, RootDoc rootDoc, Html html, Consumer<? super OptionProvider> usedOptionProviders)
-    throws Longjump {
+    properties(
+        ClassDoc                         classDoc,
+        RootDoc                          rootDoc,
+        Html                             html,
+        OptionProviders                  optionProviders,
+        Consumer<? super OptionProvider> usedOptionProviders,
+        boolean                          generateHtml,
+        Descriptions                     descriptions
+    ) {
 
         List<RuleProperty> properties = new ArrayList<RuleProperty>();
         for (final MethodDoc methodDoc : classDoc.methods(false)) {
 
-            // Is this method annotated as a property?
-            AnnotationDesc rpa = null;
-            SourcePosition pos = methodDoc.position();
-            rpa = CsDoclet.xor(rpa, Annotations.get(methodDoc, BooleanRuleProperty.class,      rootDoc), pos, rootDoc);
-            rpa = CsDoclet.xor(rpa, Annotations.get(methodDoc, FileRuleProperty.class,         rootDoc), pos, rootDoc);
-            rpa = CsDoclet.xor(rpa, Annotations.get(methodDoc, HiddenRuleProperty.class,       rootDoc), pos, rootDoc);
-            rpa = CsDoclet.xor(rpa, Annotations.get(methodDoc, IntegerRuleProperty.class,      rootDoc), pos, rootDoc);
-            rpa = CsDoclet.xor(rpa, Annotations.get(methodDoc, MultiCheckRuleProperty.class,   rootDoc), pos, rootDoc);
-            rpa = CsDoclet.xor(rpa, Annotations.get(methodDoc, RegexRuleProperty.class,        rootDoc), pos, rootDoc);
-            rpa = CsDoclet.xor(rpa, Annotations.get(methodDoc, SingleSelectRuleProperty.class, rootDoc), pos, rootDoc);
-            rpa = CsDoclet.xor(rpa, Annotations.get(methodDoc, StringRuleProperty.class,       rootDoc), pos, rootDoc);
+            // Is this method annotated as a property? (The property annotations are mutually exclusive.)
+            AnnotationDesc rpa      = null;
+            Datatype       datatype = null;
+            for (AnnotationDesc ad : methodDoc.annotations()) {
+
+                Datatype dt = CsDoclet.RULE_PROPERTY_ANNOTATIONS.get(ad.annotationType().qualifiedTypeName());
+                if (dt == null) continue;
+
+                if (rpa != null) {
+                    rootDoc.printError(
+                        methodDoc.position(),
+                        "\"" + rpa + "\" and \"" + ad + "\" are mutually exclusive"
+                    );
+                    continue;
+                }
+
+                rpa      = ad;
+                datatype = dt;
+            }
 
-            if (rpa == null) continue;
+            if (rpa == null || datatype == null) continue;
 
             try {
-                properties.add(CsDoclet.property(methodDoc, rpa, rootDoc, usedOptionProviders, html));
+                properties.add(CsDoclet.property(
+                    methodDoc,
+                    rpa,
+                    datatype,
+                    rootDoc,
+                    optionProviders,
+                    usedOptionProviders,
+                    generateHtml,
+                    html,
+                    descriptions
+                ));
             } catch (Longjump l) {}
         }
 
@@ -1161,27 +2093,40 @@ class CsDoclet {
     }
 
     /**
+     * Maps the qualified names of the rule property annotations to the respective property datatype.
+     */
+    static final Map<String /*annotationTypeName*/, Datatype> RULE_PROPERTY_ANNOTATIONS;
+    static {
+        Map<String, Datatype> m = new HashMap<String, Datatype>();
+        m.put(BooleanRuleProperty.class.getName(),      Datatype.BOOLEAN);
+        m.put(FileRuleProperty.class.getName(),         Datatype.FILE);
+        m.put(HiddenRuleProperty.class.getName(),       Datatype.HIDDEN);
+        m.put(IntegerRuleProperty.class.getName(),      Datatype.INTEGER);
+        m.put(MultiCheckRuleProperty.class.getName(),   Datatype.MULTI_CHECK);
+        m.put(RegexRuleProperty.class.getName(),        Datatype.REGEX);
+        m.put(SingleSelectRuleProperty.class.getName(), Datatype.SINGLE_SELECT);
+        m.put(StringRuleProperty.class.getName(),       Datatype.STRING);
+        RULE_PROPERTY_ANNOTATIONS = Collections.unmodifiableMap(m);
+    }
+
+    /**
+     * @param rpa                The rule property annotation of the <var>methodDoc</var>
+     * @param datatype           The datatype that corresponds with the type of the <var>rpa</var>
      * @param usedOptionProvider Gets the option provider used by the property (if any)
      */
     private static RuleProperty
     property(
         MethodDoc                        methodDoc,
         AnnotationDesc                   rpa,
+        final Datatype                   datatype,
         RootDoc                          rootDoc,
+        OptionProviders                  optionProviders,
         Consumer<? super OptionProvider> usedOptionProvider,
-        Html                             html
+        final boolean                    generateHtml,
+        Html                             html,
+        final Descriptions               descriptions
     ) throws Longjump {
 
-        // Determine the datatype.
-        final Datatype datatype;
-        {
-            String atsn = rpa.annotationType().simpleTypeName();
-            int    idx  = atsn.indexOf("RuleProperty");
-
-            assert idx != -1 : atsn;
-            datatype = Datatype.valueOf(Notations.fromCamelCase(atsn.substring(0, idx)).toUpperCaseUnderscored());
-        }
-
         // Determine the property name.
         final String propertyName;
         {
@@ -1197,9 +2142,9 @@ class CsDoclet {
             propertyName = n;
         }
 
-        // Determine short and long description.
-        final String ruleShortDescription = html.fromTags(methodDoc.firstSentenceTags(), methodDoc, rootDoc);
-        final String ruleLongDescription  = html.fromTags(methodDoc.inlineTags(),        methodDoc, rootDoc);
+        // Render the descriptions now, so that a property with a broken doc comment is reported and skipped.
+        descriptions.shortDescription(methodDoc, methodDoc);
+        if (generateHtml) descriptions.longDescription(methodDoc, methodDoc);
 
         // Determine the (optional) option provider.
         final OptionProvider optionProvider;
@@ -1216,123 +2161,9 @@ class CsDoclet {
             String[] valueOptions = Annotations.getElementValue(rpa, "valueOptions", String[].class);
 
             if (opc == null) {
-                if (valueOptions == null) {
-                    optionProvider = null;
-                } else {
-                    List<ValueOption> tmp = new ArrayList<CsDoclet.ValueOption>();
-                    for (String ev : valueOptions) {
-                        tmp.add(new ValueOption() {
-                            @Override public String           name()             { return ev;   }
-                            @Override @Nullable public String shortDescription() { return null; }
-                            @Override @Nullable public String longDescription()  { return null; }
-                        });
-                    }
-                    final ValueOption[] valueOptions2 = tmp.toArray(new ValueOption[tmp.size()]);
-                    optionProvider = new OptionProvider() {
-                        @Override @Nullable public String name()             { return null;          }
-                        @Override @Nullable public String className()        { return null;          }
-                        @Override public ValueOption[]    valueOptions()     { return valueOptions2; }
-                        @Override @Nullable public String shortDescription() { return null;          }
-                        @Override @Nullable public String longDescription()  { return null;          }
-                    };
-                }
+                optionProvider = valueOptions == null ? null : optionProviders.get(valueOptions);
             } else {
-                final String  optionProviderShortDescription = html.fromTags(opc.firstSentenceTags(), opc, rootDoc);
-                final String  optionProviderLongDescription  = html.fromTags(opc.inlineTags(),        opc, rootDoc);
-                ValueOption[] valueOptions2;
-                if (opc.isEnum()) {
-
-                    // Property is an ENUM.
-                    List<ValueOption> tmp2 = new ArrayList<ValueOption>();
-                    for (FieldDoc fd : opc.enumConstants()) {
-
-                        String valueOptionShortDescription = html.fromTags(fd.firstSentenceTags(), rootDoc, rootDoc);
-                        String valueOptionLongDescription  = html.fromTags(fd.inlineTags(),        rootDoc, rootDoc);
-                        tmp2.add(new ValueOption() {
-
-                            @Override public String
-                            name() { return fd.name().toLowerCase(); }
-
-                            @Override public String
-                            shortDescription() { return valueOptionShortDescription; }
-
-                            @Override public String
-                            longDescription() { return valueOptionLongDescription; }
-                        });
-                    }
-                    valueOptions2 = tmp2.toArray(new ValueOption[0]);
-                } else
-                if (opc.subclassOf(CsDoclet.getIOptionProviderClass(rootDoc))) {
-
-                    // Property
-                    Class<?> opc2 = Types.loadType(methodDoc.position(), opc, rootDoc);
-
-                    List<String> tmp2;
-                    try {
-                        @SuppressWarnings("unchecked") List<String>
-                        tmp3 = (List<String>) opc2.getDeclaredMethod("getOptions").invoke(opc2.newInstance());
-                        tmp2 = tmp3;
-                    } catch (Exception e) {
-                        rootDoc.printError(methodDoc.position(), e.getMessage());
-                        throw new Longjump(); // SUPPRESS CHECKSTYLE AvoidHidingCause
-                    }
-                    List<ValueOption> tmp3 = new ArrayList<CsDoclet.ValueOption>();
-                    for (final String von : tmp2) {
-                        tmp3.add(new ValueOption() {
-                            @Override public String           name()             { return von;  }
-                            @Override @Nullable public String shortDescription() { return null; }
-                            @Override @Nullable public String longDescription()  { return null; }
-                        });
-                    }
-                    valueOptions2 = tmp3.toArray(new ValueOption[0]);
-                } else
-                {
-                    rootDoc.printError(methodDoc.position(), (
-                        ""
-                        + "Option provider class '"
-                        + opc
-                        + "' must either extend 'Enum' or implement "
-                        + "\"net.sf.eclipsecs.core.config.meta.IOptionProvider\""
-                    ));
-                    throw new Longjump();
-                }
-
-                String qualifiedClassName;
-                {
-                    ClassDoc containingClass = opc.containingClass();
-                    if (containingClass == null) {
-                        qualifiedClassName = opc.qualifiedName();
-                    } else {
-                        qualifiedClassName = opc.containingPackage().name() + '.' + opc.name().replace('.', '$');
-                    }
-                }
-                optionProvider = new OptionProvider() {
-
-                    @Override public String
-                    name() {
-                        String result;
-                        try {
-                            result = html.optionalTag(opc, "@cs-name", rootDoc);
-                        } catch (Longjump e) {
-                            result = "???";
-                        }
-                        if (result == null) result = opc.qualifiedName();
-                        return result;
-                    }
-
-                    @Override public String
-                    className() { return qualifiedClassName; }
-
-                    @Override public String
-                    shortDescription() { return optionProviderShortDescription; }
-
-                    @Override public String
-                    longDescription() { return optionProviderLongDescription; }
-
-                    @Override public ValueOption[]
-                    valueOptions() { return valueOptions2; }
-                };
-
+                optionProvider = optionProviders.get(opc, methodDoc.position(), rootDoc, html);
                 usedOptionProvider.consume(optionProvider);
             }
         }
@@ -1343,36 +2174,25 @@ class CsDoclet {
         final String
         overrideDefaultValue = Annotations.getElementValue(rpa, "overrideDefaultValue", String.class);
 
+        final SourcePosition position = methodDoc.position();
+
         return new RuleProperty() {
 
             @Override public Doc                      ref()                  { return methodDoc;            }
+            @Override public SourcePosition           position()             { return position;             }
             @Override public String                   name()                 { return propertyName;         }
-            @Override public String                   shortDescription()     { return ruleShortDescription; }
-            @Override public String                   longDescription()      { return ruleLongDescription;  }
             @Override public Datatype                 datatype()             { return datatype;             }
             @Override @Nullable public OptionProvider optionProvider()       { return optionProvider;       }
             @Override @Nullable public Object         defaultValue()         { return defaultValue;         }
             @Override @Nullable public Object         overrideDefaultValue() { return overrideDefaultValue; }
-        };
-    }
-
-    @Nullable private static AnnotationDesc
-    xor(
-        @Nullable AnnotationDesc rpa1,
-        @Nullable AnnotationDesc rpa2,
-        SourcePosition           position,
-        DocErrorReporter         errorReporter
-    ) {
-
-        if (rpa1 == null) {
-            return rpa2;
-        }
 
-        if (rpa2 == null) {
-            return rpa1;
-        }
+            @Override public String
+            shortDescription() { return descriptions.renderedShortDescription(methodDoc, methodDoc); }
 
-        errorReporter.printError(position, "\"" + rpa1 + "\" and \"" + rpa2 + "\" are mutually exclusive");
-        return rpa1;
+            @Override public String
+            longDescription() {
+                return generateHtml ? descriptions.renderedLongDescription(methodDoc, methodDoc) : "";
+            }
+        };
     }
 }
@@ -0,0 +1,127 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.javadoc.DocErrorReporter;
+import com.sun.javadoc.SourcePosition;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * A {@link DocErrorReporter} that records all errors, warnings and notices, so that they can later be {@link
+ * #replay(DocErrorReporter) replayed} to another error reporter. Useful for work that is executed by a background
+ * thread, but whose diagnostics must be reported in a deterministic order.
+ */
+public
+class DeferredDocErrorReporter implements DocErrorReporter {
+
+    private enum Kind { ERROR, WARNING, NOTICE }
+
+    private static final
+    class Diagnostic {
+
+        final Kind                     kind;
+        @Nullable final SourcePosition position;
+        final String                   message;
+
+        Diagnostic(Kind kind, @Nullable SourcePosition position, String message) {
+            this.kind     = kind;
+            this.position = position;
+            this.message  = message;
+        }
+    }
+
+    private final List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+
+    @Override public synchronized void
+    printError(@Nullable String msg) { this.add(Kind.ERROR, null, msg); }
+
+    @Override public synchronized void
+    printError(@Nullable SourcePosition pos, @Nullable String msg) { this.add(Kind.ERROR, pos, msg); }
+
+    @Override public synchronized void
+    printWarning(@Nullable String msg) { this.add(Kind.WARNING, null, msg); }
+
+    @Override public synchronized void
+    printWarning(@Nullable SourcePosition pos, @Nullable String msg) { this.add(Kind.WARNING, pos, msg); }
+
+    @Override public synchronized void
+    printNotice(@Nullable String msg) { this.add(Kind.NOTICE, null, msg); }
+
+    @Override public synchronized void
+    printNotice(@Nullable SourcePosition pos, @Nullable String msg) { this.add(Kind.NOTICE, pos, msg); }
+
+    /**
+     * @return Whether no diagnostics were recorded
+     */
+    public synchronized boolean
+    isEmpty() { return this.diagnostics.isEmpty(); }
+
+    /**
+     * @return Whether any errors or warnings were recorded
+     */
+    public synchronized boolean
+    hasErrorsOrWarnings() {
+        for (Diagnostic d : this.diagnostics) {
+            if (d.kind != Kind.NOTICE) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reports all recorded diagnostics, in their original order, to the <var>target</var>.
+     */
+    public synchronized void
+    replay(DocErrorReporter target) {
+
+        for (Diagnostic d : this.diagnostics) {
+            SourcePosition pos = d.position;
+            switch (d.kind) {
+
+            case ERROR:
+                if (pos == null) target.printError(d.message); else target.printError(pos, d.message);
+                break;
+
+            case WARNING:
+                if (pos == null) target.printWarning(d.message); else target.printWarning(pos, d.message);
+                break;
+
+            case NOTICE:
+                if (pos == null) target.printNotice(d.message); else target.printNotice(pos, d.message);
+                break;
+            }
+        }
+    }
+
+    private void
+    add(Kind kind, @Nullable SourcePosition position, @Nullable String message) {
+        this.diagnostics.add(new Diagnostic(kind, position, String.valueOf(message)));
+    }
+}
@@ -0,0 +1,215 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.sun.javadoc.Doc;
+import com.sun.javadoc.DocErrorReporter;
+import com.sun.javadoc.RootDoc;
+import com.sun.javadoc.Tag;
+
+import de.unkrig.commons.doclet.html.Html;
+import de.unkrig.commons.lang.protocol.Longjump;
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Renders the descriptions of the elements of the rule model. The model elements hold only their docs, and obtain
+ * their descriptions through this object; thus the description HTML is not strongly reachable from the model.
+ * <p>
+ *   Notice that this is <em>not</em> lazy rendering: Each description is rendered when its element is derived (so
+ *   that an element whose description cannot be rendered is reported and skipped), and obtained again when a {@link
+ *   Snapshots snapshot} of the element is taken for an output task. Rendering results are not kept here; the second
+ *   rendering is served by the {@link Html}'s memoization, unless that has reclaimed the result under memory
+ *   pressure, in which case the description is rendered once more.
+ * </p>
+ * <p>
+ *   So what this design buys is that the description strings can be reclaimed while the doclet run proceeds: Only
+ *   the snapshots of the pending output tasks hold them strongly. The price is a repeated rendering after a reclaim.
+ * </p>
+ * <p>
+ *   The diagnostics of a rendering (e.g. an unresolvable link) are reported only once, and a description whose
+ *   rendering reported diagnostics is never stored in the {@link ModelCache}, so that a cache hit cannot hide them
+ *   in later doclet runs.
+ * </p>
+ * <p>
+ *   Must only be used by the doclet thread, because it accesses the javadoc API. Output tasks use {@link Snapshots}
+ *   of the model instead.
+ * </p>
+ */
+public final
+class Descriptions {
+
+    private final Html                 html;
+    private final RootDoc              rootDoc;
+    @Nullable private final ModelCache modelCache;
+
+    /** The descriptions whose rendering reported diagnostics. */
+    private final Set<Key> keysWithDiagnostics = new HashSet<Key>();
+
+    /**
+     * Identifies one description; compares the docs by identity.
+     */
+    private static final
+    class Key {
+
+        private final Doc     doc;
+        private final boolean firstSentence;
+        private final Doc     ref;
+
+        Key(Doc doc, boolean firstSentence, Doc ref) {
+            this.doc           = doc;
+            this.firstSentence = firstSentence;
+            this.ref           = ref;
+        }
+
+        @Override public int
+        hashCode() {
+            int result = System.identityHashCode(this.doc);
+            result = 31 * result + System.identityHashCode(this.ref);
+            return this.firstSentence ? result : ~result;
+        }
+
+        @Override public boolean
+        equals(@Nullable Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key that = (Key) obj;
+            return that.doc == this.doc && that.firstSentence == this.firstSentence && that.ref == this.ref;
+        }
+    }
+
+    /**
+     * @param modelCache Is checked before, and updated after each rendering; {@code null} means: No persistent
+     *                   caching
+     */
+    public
+    Descriptions(Html html, RootDoc rootDoc, @Nullable ModelCache modelCache) {
+        this.html       = html;
+        this.rootDoc    = rootDoc;
+        this.modelCache = modelCache;
+    }
+
+    /**
+     * @param ref The doc comment from which relative references are resolved
+     * @return    The first sentence of the <var>doc</var>'s comment, as HTML
+     * @throws Longjump The comment cannot be rendered (an error was reported)
+     */
+    public String
+    shortDescription(Doc doc, Doc ref) throws Longjump { return this.render(doc, true, ref); }
+
+    /**
+     * @param ref The doc comment from which relative references are resolved
+     * @return    The <var>doc</var>'s comment, as HTML
+     * @throws Longjump The comment cannot be rendered (an error was reported)
+     */
+    public String
+    longDescription(Doc doc, Doc ref) throws Longjump { return this.render(doc, false, ref); }
+
+    /**
+     * Renders a short description that was successfully rendered before by {@link #shortDescription(Doc, Doc)}.
+     */
+    public String
+    renderedShortDescription(Doc doc, Doc ref) { return this.renderAgain(doc, true, ref); }
+
+    /**
+     * Renders a long description that was successfully rendered before by {@link #longDescription(Doc, Doc)}.
+     */
+    public String
+    renderedLongDescription(Doc doc, Doc ref) { return this.renderAgain(doc, false, ref); }
+
+    private String
+    renderAgain(Doc doc, boolean firstSentence, Doc ref) {
+        try {
+            return this.render(doc, firstSentence, ref);
+        } catch (Longjump l) {
+
+            // Rendering is deterministic, so a description that was rendered before cannot fail now.
+            throw new AssertionError(l);
+        }
+    }
+
+    private String
+    render(Doc doc, boolean firstSentence, Doc ref) throws Longjump {
+
+        Key key = new Key(doc, firstSentence, ref);
+
+        ModelCache modelCache = this.modelCache;
+        if (modelCache != null && !this.keysWithDiagnostics.contains(key)) {
+            String result = modelCache.get(doc, firstSentence, ref);
+            if (result != null) return result;
+        }
+
+        DeferredDocErrorReporter diagnostics = new DeferredDocErrorReporter();
+        String                   result;
+        try {
+            Tag[] tags = firstSentence ? doc.firstSentenceTags() : doc.inlineTags();
+            result = this.html.fromTags(tags, ref, Descriptions.reportingTo(this.rootDoc, diagnostics));
+        } finally {
+            if (!diagnostics.isEmpty() && this.keysWithDiagnostics.add(key)) diagnostics.replay(this.rootDoc);
+        }
+
+        if (modelCache != null && !this.keysWithDiagnostics.contains(key)) {
+            modelCache.put(doc, firstSentence, ref, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return A {@link RootDoc} that forwards all invocations to the <var>delegate</var>, except that it reports
+     *         errors, warnings and notices to the <var>errorReporter</var>
+     */
+    private static RootDoc
+    reportingTo(final RootDoc delegate, final DocErrorReporter errorReporter) {
+
+        return (RootDoc) Proxy.newProxyInstance(
+            RootDoc.class.getClassLoader(),
+            new Class<?>[] { RootDoc.class },
+            new InvocationHandler() {
+
+                @Override @Nullable public Object
+                invoke(@Nullable Object proxy, @Nullable Method method, @Nullable Object[] args) throws Throwable {
+                    assert method != null;
+
+                    try {
+                        return method.invoke(
+                            method.getDeclaringClass() == DocErrorReporter.class ? errorReporter : delegate,
+                            args
+                        );
+                    } catch (InvocationTargetException ite) {
+                        throw ite.getCause();
+                    }
+                }
+            }
+        );
+    }
+}
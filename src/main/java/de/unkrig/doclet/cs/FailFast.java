@@ -0,0 +1,91 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import com.sun.javadoc.RootDoc;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Implements the "{@code -fail-fast}" option: Aborts the doclet as soon as the first error is reported.
+ */
+public final
+class FailFast {
+
+    private FailFast() {}
+
+    /**
+     * Thrown by the {@link #rootDoc(RootDoc) fail-fast root doc} after it has reported an error.
+     */
+    public static final
+    class Abort extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        Abort() { super("Aborted after the first error"); }
+    }
+
+    /**
+     * The errors and warnings are reported through the root doc - not only by the doclet, but also by the
+     * libraries it uses (e.g. when a doc comment contains an unresolvable link) - so the root doc is the only place
+     * where all errors can be intercepted.
+     *
+     * @return A {@link RootDoc} that forwards all invocations to the <var>delegate</var>, and throws an {@link Abort}
+     *         after it has forwarded an error
+     */
+    public static RootDoc
+    rootDoc(final RootDoc delegate) {
+
+        return (RootDoc) Proxy.newProxyInstance(
+            RootDoc.class.getClassLoader(),
+            new Class<?>[] { RootDoc.class },
+            new InvocationHandler() {
+
+                @Override @Nullable public Object
+                invoke(@Nullable Object proxy, @Nullable Method method, @Nullable Object[] args) throws Throwable {
+                    assert method != null;
+
+                    Object result;
+                    try {
+                        result = method.invoke(delegate, args);
+                    } catch (InvocationTargetException ite) {
+                        throw ite.getCause();
+                    }
+
+                    if ("printError".equals(method.getName())) throw new Abort();
+
+                    return result;
+                }
+            }
+        );
+    }
+}
@@ -0,0 +1,136 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.SourcePosition;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Computes fingerprints (SHA-256 digests) of the inputs of the doclet, so that results of previous doclet runs can
+ * be reused iff their inputs have not changed.
+ * <p>
+ *   Must only be used by one thread at a time, because it accesses the javadoc API.
+ * </p>
+ */
+public final
+class Fingerprints {
+
+    private final Map<ClassDoc, byte[]> classDigests      = new IdentityHashMap<ClassDoc, byte[]>();
+    private final Map<File, byte[]>     sourceFileDigests = new HashMap<File, byte[]>();
+
+    /**
+     * @return The SHA-256 over the source files and the raw doc comments of the <var>classDoc</var> and all its
+     *         superclasses
+     */
+    public byte[]
+    of(ClassDoc classDoc) throws IOException {
+
+        byte[] result = this.classDigests.get(classDoc);
+        if (result != null) return result;
+
+        MessageDigest md = Fingerprints.sha256();
+
+        for (ClassDoc cd = classDoc; cd != null; cd = cd.superclass()) {
+
+            Fingerprints.update(md, cd.qualifiedName(), cd.getRawCommentText());
+
+            // Superclasses that were loaded from class files (e.g. "AbstractCheck") have no (existing) source file.
+            SourcePosition position = cd.position();
+            if (position != null && position.file().isFile()) md.update(this.sourceFileDigest(position.file()));
+        }
+
+        result = md.digest();
+        this.classDigests.put(classDoc, result);
+
+        return result;
+    }
+
+    /**
+     * Feeds the <var>values</var> into the <var>messageDigest</var>, such that different sequences of values
+     * produce different digests.
+     */
+    public static void
+    update(MessageDigest messageDigest, @Nullable Object... values) {
+        for (Object value : values) {
+            messageDigest.update(
+                value == null
+                ? new byte[] { 1 }
+                : (String.valueOf(value) + '\0').getBytes(StandardCharsets.UTF_8)
+            );
+        }
+    }
+
+    /**
+     * @return A new SHA-256 message digest
+     */
+    public static MessageDigest
+    sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new AssertionError(nsae);
+        }
+    }
+
+    /**
+     * @return The lower-case hex representation of the <var>digest</var>
+     */
+    public static String
+    hex(byte[] digest) {
+
+        StringBuilder sb = new StringBuilder(2 * digest.length);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+
+        return sb.toString();
+    }
+
+    private byte[]
+    sourceFileDigest(File file) throws IOException {
+
+        byte[] result = this.sourceFileDigests.get(file);
+        if (result == null) {
+            result = Fingerprints.sha256().digest(Files.readAllBytes(file.toPath()));
+            this.sourceFileDigests.put(file, result);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,127 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.sun.javadoc.AnnotationDesc;
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.DocErrorReporter;
+import com.sun.javadoc.FieldDoc;
+
+import de.unkrig.commons.doclet.Annotations;
+
+/**
+ * Determines the default messages of classes, i.e. the values of the {@code @Message} annotations of their constants,
+ * including those inherited from their superclasses.
+ * <p>
+ *   The message table of each class is computed only once: It consists of the class's own messages plus the (cached)
+ *   message table of its superclass. Thus, errors in a base class are reported only once, and not once for each of
+ *   its subclasses.
+ * </p>
+ */
+public final
+class MessageTables {
+
+    private final Map<ClassDoc, SortedMap<String /*messageKey*/, String /*message*/>>
+    messageTables = new IdentityHashMap<ClassDoc, SortedMap<String, String>>();
+
+    /**
+     * @return The default messages of the <var>classDoc</var> and its superclasses; not modifiable
+     */
+    public SortedMap<String /*messageKey*/, String /*message*/>
+    get(ClassDoc classDoc, DocErrorReporter errorReporter) {
+
+        SortedMap<String, String> result = this.messageTables.get(classDoc);
+        if (result != null) return result;
+
+        ClassDoc superclass = classDoc.superclass();
+
+        SortedMap<String, String> messages = (
+            superclass == null
+            ? new TreeMap<String, String>()
+            : new TreeMap<String, String>(this.get(superclass, errorReporter))
+        );
+
+        for (FieldDoc fd : classDoc.fields(false)) {
+
+            AnnotationDesc a = Annotations.get(fd, "Message");
+            if (a == null) continue;
+
+            final String messageKey;
+            {
+                Object o = fd.constantValue();
+                if (o == null) {
+                    errorReporter.printError(
+                        fd.position(),
+                        "Field '" + fd.name() + "' has a '@Message' annotation, but not a constant value"
+                    );
+                    continue;
+                }
+
+                if (!(o instanceof String)) {
+                    errorReporter.printError(
+                        fd.position(),
+                        "Constant '" + fd.name() + "' must have type 'String'"
+                    );
+                    continue;
+                }
+
+                messageKey = (String) o;
+            }
+
+            String message = Annotations.getElementValue(a, "value", String.class);
+            if (message == null) {
+                errorReporter.printError(fd.position(), "Message lacks a default text");
+                continue;
+            }
+
+            String orig = messages.put(messageKey, message);
+
+            if (orig != null && !message.equals(orig)) {
+                errorReporter.printError(fd.position(), (
+                    "Inconsistent redefinition of message \""
+                    + messageKey
+                    + "\": Previously \""
+                    + orig
+                    + "\", now \""
+                    + message
+                    + "\""
+                ));
+            }
+        }
+
+        result = Collections.unmodifiableSortedMap(messages);
+        this.messageTables.put(classDoc, result);
+
+        return result;
+    }
+}
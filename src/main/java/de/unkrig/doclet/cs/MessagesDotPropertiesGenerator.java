@@ -26,13 +26,14 @@
 
 package de.unkrig.doclet.cs;
 
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
-import com.sun.javadoc.RootDoc;
+import com.sun.javadoc.DocErrorReporter;
 
 import de.unkrig.doclet.cs.CsDoclet.Rule;
 
@@ -50,14 +51,16 @@ class MessagesDotPropertiesGenerator {
      * Prints the 'checkstyle-metadata.properties' file.
      */
     public static void
-    generate(final Collection<Rule> rules, final PrintWriter mp, final RootDoc rootDoc) {
+    generate(final Collection<Rule> rules, final Writer w, final DocErrorReporter errorReporter) throws IOException {
 
-        mp.printf(
+        PropertiesWriter mp = new PropertiesWriter(w);
+
+        mp.raw(
             ""
-            + "%n"
-            + "# This file was generated by the CheckStyle doclet; see http://cs-doclet.unkrig.de%n"
-            + "%n"
-            + "# Custom check messages, in alphabetical order.%n"
+            + PropertiesWriter.NL
+            + "# This file was generated by the CheckStyle doclet; see http://cs-doclet.unkrig.de" + PropertiesWriter.NL
+            + PropertiesWriter.NL
+            + "# Custom check messages, in alphabetical order." + PropertiesWriter.NL
         );
 
         SortedMap<String, String> allMessages = new TreeMap<String, String>();
@@ -68,7 +71,7 @@ class MessagesDotPropertiesGenerator {
 
                 String orig = allMessages.put(messageKey, message);
                 if (orig != null && !message.equals(orig)) {
-                    rootDoc.printError((
+                    errorReporter.printError((
                         "Rule \""
                         + rule.name()
                         + "\" redefines message \""
@@ -87,7 +90,7 @@ class MessagesDotPropertiesGenerator {
             String messageKey = e.getKey();
             String message    = e.getValue();
 
-            mp.printf("%1$-32s = %2$s%n", messageKey, message);
+            mp.property(messageKey, 32, message);
         }
     }
 }
@@ -0,0 +1,344 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.Doc;
+import com.sun.javadoc.DocErrorReporter;
+import com.sun.javadoc.ExecutableMemberDoc;
+import com.sun.javadoc.MemberDoc;
+import com.sun.javadoc.ProgramElementDoc;
+import com.sun.javadoc.SeeTag;
+import com.sun.javadoc.Tag;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * A persistent cache of the rendered descriptions of the rule model, which survives doclet runs.
+ * <p>
+ *   The descriptions of the elements of a class (the class itself, its methods and its fields) are stored in one
+ *   file, which is named after a fingerprint of the class: The SHA-256 over the content of the class's source file,
+ *   its raw doc comment and the same data for all of its superclasses. Thus, unchanged classes need not be rendered
+ *   again, and an entry is never stale with respect to its own class hierarchy. The key of each description within
+ *   the file includes the fingerprints of the classes that the description <em>links</em> to, so that it is
+ *   rendered again when a link target changes (e.g. is renamed or removed).
+ * </p>
+ * <p>
+ *   The cache files are content-addressed, and are (re-)written only through an atomic rename, after merging the
+ *   descriptions that are already on disk. Thus one cache directory can be shared by concurrent doclet runs (e.g.
+ *   CI jobs) on different versions of the sources: A run never sees a partially written file. However, when two
+ *   runs add descriptions to the same file at the same time, the additions of one of them can be lost, which only
+ *   means that these descriptions are rendered again by a later run. Unreadable cache files are silently ignored,
+ *   and cache files that cannot be written are reported as warnings.
+ * </p>
+ * <p>
+ *   Must only be used by one thread at a time, because it accesses the javadoc API.
+ * </p>
+ */
+public final
+class ModelCache {
+
+    /**
+     * Must be changed whenever the rendering of descriptions changes, so that entries from older doclet versions are
+     * not used.
+     */
+    private static final String FORMAT_VERSION = "2";
+
+    private final File             directory;
+    private final String           salt;
+    private final Fingerprints     fingerprints;
+    private final DocErrorReporter errorReporter;
+
+    /**
+     * The cache entries of all classes that were accessed so far; {@code null} values for classes that cannot be
+     * fingerprinted.
+     */
+    private final Map<ClassDoc, Entry> entries = new IdentityHashMap<ClassDoc, Entry>();
+
+
+    private int hits, misses;
+
+    private static final
+    class Entry {
+
+        final File       file;
+        final Properties descriptions = new Properties();
+        boolean          dirty;
+
+        Entry(File file) { this.file = file; }
+    }
+
+    /**
+     * @param salt Additional input to all fingerprints; must change whenever the doclet options change in a way
+     *             that affects the rendered descriptions
+     */
+    public
+    ModelCache(File directory, String salt, Fingerprints fingerprints, DocErrorReporter errorReporter) {
+        this.directory     = directory;
+        this.salt          = salt;
+        this.fingerprints  = fingerprints;
+        this.errorReporter = errorReporter;
+    }
+
+    /**
+     * @param ref The doc comment from which relative references were resolved
+     * @return    The description of the <var>doc</var> that was previously {@link #put(Doc, boolean, Doc, String)
+     *            put}, or {@code null}
+     */
+    @Nullable public synchronized String
+    get(Doc doc, boolean firstSentence, Doc ref) {
+
+        Entry  entry  = this.entry(doc);
+        String key    = entry == null ? null : this.key(doc, firstSentence, ref);
+        String result = entry == null || key == null ? null : entry.descriptions.getProperty(key);
+
+        if (result == null) {
+            this.misses++;
+        } else {
+            this.hits++;
+        }
+
+        return result;
+    }
+
+    /**
+     * Remembers the description of the <var>doc</var>; it will be persisted by {@link #flush()}.
+     *
+     * @param ref The doc comment from which relative references were resolved
+     */
+    public synchronized void
+    put(Doc doc, boolean firstSentence, Doc ref, String description) {
+
+        Entry entry = this.entry(doc);
+        if (entry == null) return;
+
+        String key = this.key(doc, firstSentence, ref);
+        if (key == null) return;
+
+        entry.descriptions.setProperty(key, description);
+        entry.dirty = true;
+    }
+
+    /**
+     * Writes the cache entries that have changed since they were loaded. Entries that cannot be written are reported
+     * as warnings, because the cache only saves time.
+     */
+    public synchronized void
+    flush() {
+
+        for (Entry entry : this.entries.values()) {
+            if (entry == null || !entry.dirty) continue;
+
+            try {
+                ModelCache.write(entry);
+            } catch (IOException ioe) {
+                this.errorReporter.printWarning("Cannot write model cache file \"" + entry.file + "\": " + ioe);
+            }
+
+            entry.dirty = false;
+        }
+    }
+
+    /**
+     * @return The number of descriptions that were found in the cache
+     */
+    public synchronized int
+    hits() { return this.hits; }
+
+    /**
+     * @return The number of descriptions that were not found in the cache
+     */
+    public synchronized int
+    misses() { return this.misses; }
+
+    /**
+     * @return The entry for the class that declares the <var>doc</var>, or {@code null} iff that class cannot be
+     *         fingerprinted
+     */
+    @Nullable private Entry
+    entry(Doc doc) {
+
+        ClassDoc classDoc = (
+            doc instanceof ClassDoc          ? (ClassDoc) doc :
+            doc instanceof ProgramElementDoc ? ((ProgramElementDoc) doc).containingClass() :
+            null
+        );
+        if (classDoc == null) return null;
+
+        if (this.entries.containsKey(classDoc)) return this.entries.get(classDoc);
+
+        String fingerprint;
+        try {
+            MessageDigest md = Fingerprints.sha256();
+            Fingerprints.update(md, ModelCache.FORMAT_VERSION, this.salt);
+            md.update(this.fingerprints.of(classDoc));
+            fingerprint = Fingerprints.hex(md.digest());
+        } catch (IOException ioe) {
+            this.errorReporter.printWarning(
+                classDoc.position(),
+                "Cannot fingerprint \"" + classDoc.qualifiedName() + "\" for the model cache: " + ioe
+            );
+            this.entries.put(classDoc, null);
+            return null;
+        }
+
+        Entry result = new Entry(new File(
+            new File(this.directory, fingerprint.substring(0, 2)),
+            fingerprint.substring(2) + ".properties"
+        ));
+
+        ModelCache.load(result.file, result.descriptions);
+
+        this.entries.put(classDoc, result);
+
+        return result;
+    }
+
+    /**
+     * Loads the descriptions from the <var>file</var>, if it exists and is readable.
+     */
+    private static void
+    load(File file, Properties descriptions) {
+
+        if (!file.isFile()) return;
+
+        try {
+            InputStream is = new FileInputStream(file);
+            try {
+                descriptions.load(is);
+            } finally {
+                is.close();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+
+            // E.g. a cache file that was corrupted - ignore it and render again.
+            descriptions.clear();
+        }
+    }
+
+    /**
+     * Writes the <var>entry</var>, merged with the descriptions that are currently on disk.
+     */
+    private static void
+    write(Entry entry) throws IOException {
+
+        // Another doclet run may have written the same file since it was loaded, e.g. with descriptions that were
+        // rendered for other references; keep these.
+        Properties descriptions = new Properties();
+        ModelCache.load(entry.file, descriptions);
+        descriptions.putAll(entry.descriptions);
+
+        File directory = entry.file.getParentFile();
+        directory.mkdirs();
+
+        // Write to a temporary file with a unique name, and then atomically rename it, so that concurrent doclet
+        // runs never see partially written entries.
+        File tmpFile = File.createTempFile(".entry", ".tmp", directory);
+        try {
+            OutputStream os = new FileOutputStream(tmpFile);
+            try {
+                descriptions.store(os, null);
+            } finally {
+                os.close();
+            }
+            Files.move(
+                tmpFile.toPath(),
+                entry.file.toPath(),
+                StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING
+            );
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * @return The key of the description within its entry, or {@code null} iff a link target cannot be
+     *         fingerprinted (and the description must not be cached)
+     */
+    @Nullable private String
+    key(Doc doc, boolean firstSentence, Doc ref) {
+
+        // Digest the targets of the "{@link ...}" tags, and the fingerprints of their classes.
+        MessageDigest md = Fingerprints.sha256();
+        for (Tag tag : firstSentence ? doc.firstSentenceTags() : doc.inlineTags()) {
+            if (!(tag instanceof SeeTag)) continue;
+
+            SeeTag    seeTag           = (SeeTag) tag;
+            ClassDoc  referencedClass  = seeTag.referencedClass();
+            MemberDoc referencedMember = seeTag.referencedMember();
+            Fingerprints.update(
+                md,
+                seeTag.referencedClassName(),
+                seeTag.referencedMemberName(),
+                referencedClass == null ? null : referencedClass.qualifiedName(),
+                referencedMember == null ? null : ModelCache.name(referencedMember)
+            );
+
+            if (referencedClass != null) {
+                try {
+                    md.update(this.fingerprints.of(referencedClass));
+                } catch (IOException ioe) {
+                    return null;
+                }
+            }
+        }
+
+        return (
+            (firstSentence ? "short:" : "long:")
+            + ModelCache.name(doc)
+            + '@'
+            + ModelCache.name(ref)
+            + '#'
+            + Fingerprints.hex(md.digest())
+        );
+    }
+
+    private static String
+    name(Doc doc) {
+
+        if (!(doc instanceof ProgramElementDoc)) return doc.name();
+
+        String result = ((ProgramElementDoc) doc).qualifiedName();
+        if (doc instanceof ExecutableMemberDoc) result += ((ExecutableMemberDoc) doc).signature();
+
+        return result;
+    }
+}
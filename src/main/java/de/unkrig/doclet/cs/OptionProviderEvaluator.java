@@ -0,0 +1,258 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.sun.javadoc.DocErrorReporter;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Loads classes that implement {@code net.sf.eclipsecs.core.config.meta.IOptionProvider} and invokes their {@code
+ * getOptions()} method.
+ * <p>
+ *   All classes are loaded through one class loader, which is reused for the entire doclet run, and the result for
+ *   each class is computed only once. Because loading and initializing these classes can be slow, the evaluation of
+ *   a class can be started ahead of time ({@link #prefetch(String)}); it is then executed by a background thread
+ *   while the doclet thread continues to extract the model.
+ * </p>
+ * <p>
+ *   Because the option provider classes are third-party code, each evaluation is executed by its own worker thread,
+ *   and is abandoned when it does not complete within a configurable time. The duration of each evaluation is
+ *   recorded, so that slow option providers can be identified.
+ * </p>
+ */
+public final
+class OptionProviderEvaluator {
+
+    private static final
+    class Evaluation {
+
+        final long                     startNanos    = System.nanoTime();
+        @Nullable Future<List<String>> future;
+        long                           durationNanos = -1; // Guarded by "OptionProviderEvaluator.this".
+    }
+
+    private final ClassLoader              classLoader;
+    @Nullable private final URLClassLoader urlClassLoader; // Was created by this object, and must be closed.
+    private final long                     timeoutMillis;
+    private final ExecutorService          executor;
+
+    // Guarded by "this".
+    private final Map<String /*className*/, Evaluation> evaluations = new HashMap<String, Evaluation>();
+
+    /**
+     * The option provider classes are loaded from the "{@code -classpath}" specified on the javadoc command line,
+     * and from the <var>parent</var> class loader.
+     *
+     * @param options       The javadoc options
+     * @param timeoutMillis How long each option provider may take to evaluate; 0 means no limit
+     */
+    public
+    OptionProviderEvaluator(String[][] options, ClassLoader parent, long timeoutMillis) throws MalformedURLException {
+
+        final URLClassLoader urlClassLoader = OptionProviderEvaluator.classLoader(options, parent);
+        final ClassLoader    classLoader    = urlClassLoader != null ? urlClassLoader : parent;
+
+        this.classLoader    = classLoader;
+        this.urlClassLoader = urlClassLoader;
+        this.timeoutMillis  = timeoutMillis;
+        this.executor       = Executors.newCachedThreadPool(runnable -> {
+            Thread t = new Thread(runnable, "option-provider-evaluator");
+            t.setDaemon(true);
+            t.setContextClassLoader(classLoader);
+            return t;
+        });
+    }
+
+    /**
+     * @return A class loader that loads classes from the "{@code -classpath}" specified on the javadoc command line,
+     *         and from the <var>parent</var>, or {@code null} iff no "{@code -classpath}" is specified
+     */
+    @Nullable private static URLClassLoader
+    classLoader(String[][] options, ClassLoader parent) throws MalformedURLException {
+
+        List<URL> urls = new ArrayList<URL>();
+        for (String[] option : options) {
+            if (option.length == 2 && ("-classpath".equals(option[0]) || "-cp".equals(option[0]))) {
+                for (String entry : option[1].split(File.pathSeparator)) {
+                    if (!entry.isEmpty()) urls.add(new File(entry).toURI().toURL());
+                }
+            }
+        }
+
+        return urls.isEmpty() ? null : new URLClassLoader(urls.toArray(new URL[urls.size()]), parent);
+    }
+
+    /**
+     * Starts the evaluation of the named option provider class in the background, unless it was already started.
+     *
+     * @param className The binary name of the option provider class
+     */
+    public synchronized void
+    prefetch(final String className) {
+
+        if (this.evaluations.containsKey(className)) return;
+
+        final Evaluation evaluation = new Evaluation();
+        this.evaluations.put(className, evaluation);
+
+        evaluation.future = this.executor.submit(() -> {
+            try {
+                return this.evaluate(className);
+            } finally {
+                synchronized (this) { evaluation.durationNanos = System.nanoTime() - evaluation.startNanos; }
+            }
+        });
+    }
+
+    /**
+     * Waits until the evaluation of the named option provider class is complete; starts it if necessary.
+     *
+     * @param className The binary name of the option provider class
+     * @return          The value returned by the class's {@code getOptions()} method; not modifiable
+     * @throws TimeoutException The evaluation did not complete within the configured time
+     * @throws Exception        The option provider class could not be loaded, instantiated or evaluated
+     */
+    public List<String>
+    getOptions(String className) throws Exception {
+
+        Evaluation evaluation;
+        synchronized (this) {
+            this.prefetch(className);
+            evaluation = this.evaluations.get(className);
+        }
+        assert evaluation != null;
+
+        Future<List<String>> future = evaluation.future;
+        assert future != null;
+
+        try {
+            if (this.timeoutMillis == 0) return future.get();
+
+            long remainingNanos = (
+                TimeUnit.MILLISECONDS.toNanos(this.timeoutMillis)
+                - (System.nanoTime() - evaluation.startNanos)
+            );
+            return future.get(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | CancellationException e) {
+
+            // Abandon the evaluation; the worker thread is a daemon, so it does not prevent the JVM from exiting even
+            // if it ignores the interrupt.
+            future.cancel(true);
+            throw new TimeoutException("Did not complete within " + this.timeoutMillis + " ms");
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error)     throw (Error) cause;
+            throw new AssertionError(cause);
+        }
+    }
+
+    /**
+     * Reports, as notices, how long the evaluation of each option provider took, slowest first.
+     */
+    public void
+    reportTimings(DocErrorReporter errorReporter) {
+
+        List<Entry<String, Long>> timings = new ArrayList<Entry<String, Long>>();
+        synchronized (this) {
+            for (Entry<String, Evaluation> e : this.evaluations.entrySet()) {
+                timings.add(new SimpleEntry<String, Long>(
+                    e.getKey(),
+                    e.getValue().durationNanos
+                ));
+            }
+        }
+
+        Collections.sort(timings, (e1, e2) -> Long.compare(e2.getValue(), e1.getValue()));
+
+        for (Entry<String, Long> e : timings) {
+            long durationNanos = e.getValue();
+            errorReporter.printNotice(
+                "Option provider \"" + e.getKey() + "\": "
+                + (durationNanos == -1 ? "not completed" : TimeUnit.NANOSECONDS.toMillis(durationNanos) + " ms")
+            );
+        }
+    }
+
+    /**
+     * Abandons all pending evaluations, and closes the class loader that loaded the option provider classes.
+     */
+    public void
+    close() throws IOException {
+
+        this.executor.shutdownNow();
+
+        URLClassLoader urlClassLoader = this.urlClassLoader;
+        if (urlClassLoader != null) urlClassLoader.close();
+    }
+
+    private List<String>
+    evaluate(String className) throws Exception {
+
+        Class<?> c = Class.forName(className, true, this.classLoader);
+
+        Object result;
+        try {
+            result = c.getDeclaredMethod("getOptions").invoke(c.newInstance());
+        } catch (InvocationTargetException ite) {
+            Throwable te = ite.getTargetException();
+            if (te instanceof Exception) throw (Exception) te;
+            throw ite;
+        }
+
+        if (!(result instanceof List)) {
+            throw new ClassCastException(className + ".getOptions() did not return a List");
+        }
+
+        List<String> tmp = new ArrayList<String>();
+        for (Object o : (List<?>) result) tmp.add(String.valueOf(o));
+
+        return Collections.unmodifiableList(tmp);
+    }
+}
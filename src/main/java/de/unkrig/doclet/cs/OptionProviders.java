@@ -0,0 +1,293 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.javadoc.AnnotationDesc;
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.Doc;
+import com.sun.javadoc.FieldDoc;
+import com.sun.javadoc.MethodDoc;
+import com.sun.javadoc.RootDoc;
+import com.sun.javadoc.SourcePosition;
+import com.sun.javadoc.Type;
+
+import de.unkrig.commons.doclet.Docs;
+import de.unkrig.commons.doclet.Annotations;
+import de.unkrig.commons.doclet.html.Html;
+import de.unkrig.commons.lang.protocol.Longjump;
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.doclet.cs.CsDoclet.OptionProvider;
+import de.unkrig.doclet.cs.CsDoclet.ValueOption;
+
+/**
+ * Creates the {@link OptionProvider}s of rule properties, and guarantees that there is only one instance per option
+ * provider class, and one instance per list of {@code valueOptions=...}. Thus, the many properties that use the same
+ * option provider share one model.
+ */
+public final
+class OptionProviders {
+
+    private final Map<ClassDoc, OptionProvider>
+    byClass = new IdentityHashMap<ClassDoc, OptionProvider>();
+
+    private final Map<List<String> /*valueOptions*/, OptionProvider>
+    byValueOptions = new HashMap<List<String>, OptionProvider>();
+
+    private final OptionProviderEvaluator evaluator;
+    private final Descriptions            descriptions;
+    private final boolean                 generateHtml;
+
+    /**
+     * @param evaluator    Evaluates the option provider classes that implement {@code
+     *                     net.sf.eclipsecs.core.config.meta.IOptionProvider}
+     * @param descriptions Renders the descriptions of the option providers and their value options
+     * @param generateHtml Whether to compute the descriptions of the option providers and their value options, which
+     *                     only the HTML documentation uses
+     */
+    public
+    OptionProviders(OptionProviderEvaluator evaluator, Descriptions descriptions, boolean generateHtml) {
+        this.evaluator    = evaluator;
+        this.descriptions = descriptions;
+        this.generateHtml = generateHtml;
+    }
+
+    /**
+     * Lets the {@link OptionProviderEvaluator} evaluate, in the background, all option provider classes that
+     * implement {@code net.sf.eclipsecs.core.config.meta.IOptionProvider} and are referenced by rule properties of
+     * the <var>classDocs</var>. Must only be invoked by the doclet thread, because it accesses the javadoc API.
+     */
+    public void
+    prefetch(Collection<ClassDoc> classDocs, RootDoc rootDoc) {
+
+        ClassDoc iOptionProviderClass = rootDoc.classNamed("net.sf.eclipsecs.core.config.meta.IOptionProvider");
+        if (iOptionProviderClass == null) return;
+
+        for (ClassDoc classDoc : classDocs) {
+            for (MethodDoc methodDoc : classDoc.methods(false)) {
+                for (AnnotationDesc ad : methodDoc.annotations()) {
+
+                    if (!CsDoclet.RULE_PROPERTY_ANNOTATIONS.containsKey(ad.annotationType().qualifiedTypeName())) {
+                        continue;
+                    }
+
+                    Type opt = Annotations.getElementValue(ad, "optionProvider", Type.class);
+                    if (opt == null) continue;
+
+                    ClassDoc opc = opt.asClassDoc();
+                    if (opc == null || opc.isEnum() || !opc.subclassOf(iOptionProviderClass)) continue;
+
+                    this.evaluator.prefetch(OptionProviders.binaryName(opc));
+                }
+            }
+        }
+    }
+
+    /**
+     * Must only be invoked by the doclet thread, because it accesses the javadoc API.
+     *
+     * @param opc      An ENUM or a class that implements {@code net.sf.eclipsecs.core.config.meta.IOptionProvider}
+     * @param position Where errors are reported
+     * @return         The one and only option provider for the <var>opc</var>
+     */
+    public OptionProvider
+    get(final ClassDoc opc, SourcePosition position, final RootDoc rootDoc, final Html html) throws Longjump {
+
+        OptionProvider result = this.byClass.get(opc);
+        if (result != null) return result;
+
+        final String qualifiedClassName = OptionProviders.binaryName(opc);
+
+        final ValueOption[] valueOptions;
+        if (opc.isEnum()) {
+
+            // Property is an ENUM.
+            List<ValueOption> tmp = new ArrayList<ValueOption>();
+            for (final FieldDoc fd : opc.enumConstants()) {
+
+                final String name = fd.name().toLowerCase();
+                this.validateDescriptions(fd, rootDoc);
+                tmp.add(new ValueOption() {
+
+                    @Override public String
+                    name() { return name; }
+
+                    @Override @Nullable public String
+                    shortDescription() { return OptionProviders.this.shortDescription(fd, rootDoc); }
+
+                    @Override @Nullable public String
+                    longDescription() { return OptionProviders.this.longDescription(fd, rootDoc); }
+                });
+            }
+            valueOptions = tmp.toArray(new ValueOption[0]);
+        } else
+        if (opc.subclassOf(OptionProviders.getIOptionProviderClass(rootDoc))) {
+
+            // Property is an IOptionProvider.
+            List<String> tmp;
+            try {
+                tmp = this.evaluator.getOptions(qualifiedClassName);
+            } catch (Exception e) {
+                rootDoc.printError(position, "Evaluating option provider \"" + qualifiedClassName + "\": " + e);
+                throw new Longjump(); // SUPPRESS CHECKSTYLE AvoidHidingCause
+            }
+            valueOptions = OptionProviders.valueOptions(tmp);
+        } else
+        {
+            rootDoc.printError(position, (
+                ""
+                + "Option provider class '"
+                + opc
+                + "' must either extend 'Enum' or implement "
+                + "\"net.sf.eclipsecs.core.config.meta.IOptionProvider\""
+            ));
+            throw new Longjump();
+        }
+
+        this.validateDescriptions(opc, opc);
+
+        result = new OptionProvider() {
+
+            @Override public String
+            name() {
+                String result;
+                try {
+                    result = html.optionalTag(opc, "@cs-name", rootDoc);
+                } catch (Longjump e) {
+                    result = "???";
+                }
+                if (result == null) result = opc.qualifiedName();
+                return result;
+            }
+
+            @Override public String
+            className() { return qualifiedClassName; }
+
+            @Override @Nullable public String
+            shortDescription() { return OptionProviders.this.shortDescription(opc, opc); }
+
+            @Override @Nullable public String
+            longDescription() { return OptionProviders.this.longDescription(opc, opc); }
+
+            @Override public ValueOption[]
+            valueOptions() { return valueOptions; }
+        };
+
+        this.byClass.put(opc, result);
+
+        return result;
+    }
+
+    /**
+     * @return The one and only option provider for the given {@code valueOptions=...}
+     */
+    public OptionProvider
+    get(String[] valueOptions) {
+
+        List<String> key = Arrays.asList(valueOptions.clone());
+
+        OptionProvider result = this.byValueOptions.get(key);
+        if (result != null) return result;
+
+        final ValueOption[] valueOptions2 = OptionProviders.valueOptions(key);
+
+        result = new OptionProvider() {
+            @Override @Nullable public String name()             { return null;          }
+            @Override @Nullable public String className()        { return null;          }
+            @Override public ValueOption[]    valueOptions()     { return valueOptions2; }
+            @Override @Nullable public String shortDescription() { return null;          }
+            @Override @Nullable public String longDescription()  { return null;          }
+        };
+
+        this.byValueOptions.put(key, result);
+
+        return result;
+    }
+
+    private static ValueOption[]
+    valueOptions(List<String> names) {
+
+        List<ValueOption> result = new ArrayList<ValueOption>();
+        for (final String von : names) {
+            result.add(new ValueOption() {
+                @Override public String           name()             { return von;  }
+                @Override @Nullable public String shortDescription() { return null; }
+                @Override @Nullable public String longDescription()  { return null; }
+            });
+        }
+        return result.toArray(new ValueOption[result.size()]);
+    }
+
+    /**
+     * Renders the descriptions of the <var>doc</var> (if the HTML documentation is generated), so that an option
+     * provider with a broken doc comment is reported and skipped.
+     */
+    private void
+    validateDescriptions(Doc doc, Doc ref) throws Longjump {
+        if (this.generateHtml) {
+            this.descriptions.shortDescription(doc, ref);
+            this.descriptions.longDescription(doc, ref);
+        }
+    }
+
+    /**
+     * @return {@code null} iff the HTML documentation is not generated
+     */
+    @Nullable private String
+    shortDescription(Doc doc, Doc ref) {
+        return this.generateHtml ? this.descriptions.renderedShortDescription(doc, ref) : null;
+    }
+
+    /**
+     * @return {@code null} iff the HTML documentation is not generated
+     */
+    @Nullable private String
+    longDescription(Doc doc, Doc ref) {
+        return this.generateHtml ? this.descriptions.renderedLongDescription(doc, ref) : null;
+    }
+
+    private static String
+    binaryName(ClassDoc classDoc) {
+
+        ClassDoc containingClass = classDoc.containingClass();
+        if (containingClass == null) return classDoc.qualifiedName();
+
+        return classDoc.containingPackage().name() + '.' + classDoc.name().replace('.', '$');
+    }
+
+    private static ClassDoc
+    getIOptionProviderClass(RootDoc rootDoc) throws Longjump {
+        return Docs.classNamed(rootDoc, "net.sf.eclipsecs.core.config.meta.IOptionProvider");
+    }
+}
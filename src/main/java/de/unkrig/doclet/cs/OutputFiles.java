@@ -0,0 +1,436 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.javadoc.DocErrorReporter;
+
+import de.unkrig.commons.lang.protocol.ConsumerWhichThrows;
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Writes output files such that files whose content has not changed are left untouched, including their
+ * modification time. That spares downstream tools (incremental builds, rsync, ...) from processing files that are
+ * effectively unchanged.
+ * <p>
+ *   Each file is first written to a temporary file in the same directory, which is then compared with the existing
+ *   file. Instances are thread-safe; they count how many files were rewritten and how many were left unchanged.
+ * </p>
+ * <p>
+ *   In "dry-run" mode, nothing is written to the output directories; instead, the files that would be added or
+ *   changed are recorded, optionally with the differences, and reported by {@link #reportDryRun(DocErrorReporter)}.
+ * </p>
+ */
+public final
+class OutputFiles {
+
+    /**
+     * Creates a file.
+     *
+     * @param <EX> The throwable that {@link #create(File)} may throw, in addition to {@link IOException}
+     */
+    public
+    interface FileCreator<EX extends Throwable> {
+
+        /**
+         * Creates the given <var>file</var>.
+         */
+        void create(File file) throws IOException, EX;
+    }
+
+    private final boolean dryRun;
+    private final boolean showDiffs;
+
+    private final AtomicInteger rewritten = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+
+    /**
+     * The (absolute) files that were passed to {@link #write(File, FileCreator)}, {@link #printToFile(File, Charset,
+     * ConsumerWhichThrows)} and {@link #retain(File)}.
+     */
+    private final Set<File> files = new HashSet<File>();
+
+    private static final
+    class Change {
+
+        final String           kind; // "added", "changed" or "removed"
+        @Nullable final String diff;
+
+        Change(String kind, @Nullable String diff) {
+            this.kind = kind;
+            this.diff = diff;
+        }
+    }
+
+    /**
+     * In dry-run mode: The files that would be added, changed or removed.
+     */
+    private final Map<File, Change> dryRunChanges = new TreeMap<File, Change>();
+
+    /**
+     * Writes files.
+     */
+    public
+    OutputFiles() { this(false, false); }
+
+    /**
+     * @param dryRun    Whether to only determine which files would change, without writing anything
+     * @param showDiffs In dry-run mode: Whether to record the differences of text files that would change
+     */
+    public
+    OutputFiles(boolean dryRun, boolean showDiffs) {
+        this.dryRun    = dryRun;
+        this.showDiffs = showDiffs;
+    }
+
+    /**
+     * Lets the <var>creator</var> create a temporary file, and replaces the <var>file</var> with it iff the
+     * <var>file</var> does not exist or has different content.
+     *
+     * @throws EX The throwable that the <var>creator</var> may throw
+     */
+    public <EX extends Throwable> void
+    write(File file, FileCreator<EX> creator) throws IOException, EX {
+
+        this.retain(file);
+
+        if (this.dryRun) {
+
+            // Notice: The temporary file is NOT created in the output directory.
+            File tmpFile = File.createTempFile("cs-doclet-", ".tmp");
+            try {
+                creator.create(tmpFile);
+                this.compare(file, Files.readAllBytes(tmpFile.toPath()), null);
+            } finally {
+                tmpFile.delete();
+            }
+            return;
+        }
+
+        File directory = file.getAbsoluteFile().getParentFile();
+
+        directory.mkdirs();
+
+        File newFile = new File(directory, "." + file.getName() + ".new");
+
+        try {
+            creator.create(newFile);
+        } catch (Throwable t) { // SUPPRESS CHECKSTYLE IllegalCatch
+            newFile.delete();
+            throw t;
+        }
+
+        if (file.exists() && OutputFiles.sameContents(newFile, file)) {
+            if (!newFile.delete()) throw new IOException("Could not delete '" + newFile + "'");
+            this.unchanged.incrementAndGet();
+            return;
+        }
+
+        if (file.exists() && !file.delete()) {
+            newFile.delete();
+            throw new IOException("Could not delete existing file '" + file + "'");
+        }
+        if (!newFile.renameTo(file)) {
+            throw new IOException("Could not rename '" + newFile + "' to '" + file + "'");
+        }
+        this.rewritten.incrementAndGet();
+    }
+
+    /**
+     * Lets the {@code printer} print text to the named {@code file}, as described for {@link #write(File,
+     * FileCreator)}. In dry-run mode, the text is printed into memory.
+     *
+     * @param charset The charset to be used for printing
+     * @throws EX     The throwable that the {@code printer} may throw
+     */
+    public <EX extends Throwable> void
+    printToFile(
+        File                                         file,
+        Charset                                      charset,
+        ConsumerWhichThrows<? super PrintWriter, EX> printer
+    ) throws IOException, EX {
+
+        if (this.dryRun) {
+            this.retain(file);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            OutputFiles.print(baos, charset, printer);
+            this.compare(file, baos.toByteArray(), charset);
+            return;
+        }
+
+        this.<EX>write(file, newFile -> { OutputFiles.print(new FileOutputStream(newFile), charset, printer); });
+    }
+
+    /**
+     * Lets the <var>creator</var> create files in a temporary directory, and then {@link #write(File, FileCreator)
+     * writes} each of them to the same relative path under the <var>directory</var>. This is useful for generators
+     * that write files directly.
+     *
+     * @param creator Creates files in the given directory
+     * @throws EX     The throwable that the <var>creator</var> may throw
+     */
+    public <EX extends Throwable> void
+    writeTree(File directory, FileCreator<EX> creator) throws IOException, EX {
+
+        File tmpDirectory = Files.createTempDirectory("cs-doclet-").toFile();
+        try {
+            creator.create(tmpDirectory);
+            this.writeTree(tmpDirectory, directory);
+        } finally {
+            OutputFiles.deleteTree(tmpDirectory);
+        }
+    }
+
+    /**
+     * Declares that the existing <var>file</var> is an output file, although it is not written, e.g. because it is
+     * known to be up to date.
+     */
+    public synchronized void
+    retain(File file) { this.files.add(file.getAbsoluteFile()); }
+
+    /**
+     * Writes a manifest of all output files, so that build tools can declare the exact outputs of the doclet. Each
+     * line has the form "<var>sha256</var> <var>size</var> <var>path</var>", where the path is relative to the
+     * current working directory (if possible) and uses "/" as the separator. The lines are ordered by path, so that
+     * the manifest itself is reproducible.
+     */
+    public void
+    writeManifest(File manifestFile) throws IOException {
+
+        final Map<String /*path*/, File> files = new TreeMap<String, File>();
+        {
+            Path cwd = Paths.get("").toAbsolutePath();
+            synchronized (this) {
+                for (File file : this.files) {
+                    Path path = file.toPath();
+                    if (path.startsWith(cwd)) path = cwd.relativize(path);
+                    files.put(path.toString().replace(File.separatorChar, '/'), file);
+                }
+            }
+        }
+
+        this.printToFile(manifestFile, Charset.forName("UTF-8"), pw -> {
+            for (Entry<String, File> e : files.entrySet()) {
+                byte[] content = Files.readAllBytes(e.getValue().toPath());
+                pw.print(
+                    Fingerprints.hex(Fingerprints.sha256().digest(content))
+                    + ' '
+                    + content.length
+                    + ' '
+                    + e.getKey()
+                    + '\n'
+                );
+            }
+        });
+    }
+
+    /**
+     * In dry-run mode: Records the files under the <var>directory</var> that match the <var>filter</var>, and were
+     * not written, as "removed". Has no effect if not in dry-run mode.
+     */
+    public void
+    checkRemoved(File directory, FileFilter filter) {
+
+        if (!this.dryRun) return;
+
+        File[] members = directory.listFiles();
+        if (members == null) return;
+
+        for (File member : members) {
+            if (member.isDirectory()) {
+                this.checkRemoved(member, filter);
+            } else
+            if (filter.accept(member)) {
+                synchronized (this) {
+                    if (!this.files.contains(member.getAbsoluteFile())) {
+                        this.dryRunChanges.put(member.getAbsoluteFile(), new Change("removed", null));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of files that were created or replaced; in dry-run mode: That would be
+     */
+    public int
+    rewritten() { return this.rewritten.get(); }
+
+    /**
+     * @return The number of files that were left untouched, because their content had not changed
+     */
+    public int
+    unchanged() { return this.unchanged.get(); }
+
+    /**
+     * Reports the files that would be added, changed or removed, and the differences (if requested).
+     *
+     * @return The number of files that would be added, changed or removed
+     */
+    public synchronized int
+    reportDryRun(DocErrorReporter errorReporter) {
+
+        int added = 0, changed = 0, removed = 0;
+        for (Entry<File, Change> e : this.dryRunChanges.entrySet()) {
+            Change change = e.getValue();
+
+            errorReporter.printNotice(change.kind + ": " + e.getKey());
+            String diff = change.diff;
+            if (diff != null) {
+                if (diff.endsWith("\n")) diff = diff.substring(0, diff.length() - 1);
+                errorReporter.printNotice(diff);
+            }
+
+            if ("added".equals(change.kind))   added++;
+            if ("changed".equals(change.kind)) changed++;
+            if ("removed".equals(change.kind)) removed++;
+        }
+
+        errorReporter.printNotice(
+            "Dry run: "
+            + added
+            + " file(s) would be added, "
+            + changed
+            + " changed, "
+            + removed
+            + " removed; "
+            + this.unchanged.get()
+            + " file(s) are up to date"
+        );
+
+        return added + changed + removed;
+    }
+
+    /**
+     * Compares the <var>newContent</var> with the existing <var>file</var>, and records the outcome.
+     *
+     * @param charset The charset of the <var>newContent</var> and the existing <var>file</var>, or {@code null} if
+     *                not a text file
+     */
+    private void
+    compare(File file, byte[] newContent, @Nullable Charset charset) throws IOException {
+
+        file = file.getAbsoluteFile();
+
+        if (!file.isFile()) {
+            this.rewritten.incrementAndGet();
+            synchronized (this) { this.dryRunChanges.put(file, new Change("added", null)); }
+            return;
+        }
+
+        byte[] oldContent = Files.readAllBytes(file.toPath());
+        if (Arrays.equals(oldContent, newContent)) {
+            this.unchanged.incrementAndGet();
+            return;
+        }
+
+        this.rewritten.incrementAndGet();
+
+        String diff = null;
+        if (this.showDiffs && charset != null) {
+            diff = UnifiedDiff.diff(
+                new String(oldContent, charset),
+                new String(newContent, charset),
+                file.getPath(),
+                file.getPath() + " (generated)"
+            );
+            if (diff == null) diff = "(too many differences to show)";
+        }
+
+        synchronized (this) { this.dryRunChanges.put(file, new Change("changed", diff)); }
+    }
+
+    private void
+    writeTree(File from, File to) throws IOException {
+
+        File[] members = from.listFiles();
+        if (members == null) throw new IOException("Could not list '" + from + "'");
+
+        for (final File member : members) {
+            if (member.isDirectory()) {
+                this.writeTree(member, new File(to, member.getName()));
+            } else {
+                this.write(new File(to, member.getName()), file -> {
+                    Files.copy(member.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                });
+            }
+        }
+    }
+
+    private static <EX extends Throwable> void
+    print(OutputStream os, Charset charset, ConsumerWhichThrows<? super PrintWriter, EX> printer)
+    throws IOException, EX {
+
+        PrintWriter pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(os, charset)));
+        try {
+            printer.consume(pw);
+        } finally {
+            pw.close();
+        }
+        if (pw.checkError()) throw new IOException("Error writing output");
+    }
+
+    private static boolean
+    sameContents(File file1, File file2) throws IOException {
+
+        if (file1.length() != file2.length()) return false;
+
+        return Arrays.equals(Files.readAllBytes(file1.toPath()), Files.readAllBytes(file2.toPath()));
+    }
+
+    private static void
+    deleteTree(File file) {
+
+        File[] members = file.listFiles();
+        if (members != null) {
+            for (File member : members) OutputFiles.deleteTree(member);
+        }
+
+        file.delete();
+    }
+}
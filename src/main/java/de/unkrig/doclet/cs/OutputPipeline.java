@@ -0,0 +1,179 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.sun.javadoc.DocErrorReporter;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Executes output tasks (generation of metadata files, rendering of HTML documents) while the doclet thread continues
+ * to extract the model.
+ * <p>
+ *   The number of pending tasks is bounded: When it is reached, {@link #submit(Task)} waits for the <em>oldest</em>
+ *   pending task to complete. Errors and warnings that the tasks report are forwarded to the target error reporter
+ *   only when a task is completed like this, and by {@link #finish()}. Hence they are reported in submission order,
+ *   and at points (relative to the diagnostics that the doclet thread reports itself) that depend only on the
+ *   sequence of submissions, not on thread scheduling.
+ * </p>
+ * <p>
+ *   With one thread, all tasks are executed synchronously by {@link #submit(Task)}.
+ * </p>
+ */
+public final
+class OutputPipeline {
+
+    /**
+     * An output task.
+     */
+    public
+    interface Task {
+
+        /**
+         * @param errorReporter Gets any errors and warnings that the task produces
+         */
+        void execute(DocErrorReporter errorReporter) throws IOException;
+    }
+
+    private static final
+    class PendingTask {
+
+        final Future<?>                future;
+        final DeferredDocErrorReporter errorReporter;
+
+        PendingTask(Future<?> future, DeferredDocErrorReporter errorReporter) {
+            this.future        = future;
+            this.errorReporter = errorReporter;
+        }
+    }
+
+    private final DocErrorReporter          errorReporter;
+    @Nullable private final ExecutorService executor;
+    private final int                       maxPendingTasks;
+    private final Deque<PendingTask>        pendingTasks = new ArrayDeque<PendingTask>();
+
+    /**
+     * @param threads       The number of threads that execute the tasks
+     * @param errorReporter Gets the errors and warnings that the tasks produce
+     */
+    public
+    OutputPipeline(int threads, DocErrorReporter errorReporter) {
+
+        this.errorReporter = errorReporter;
+
+        if (threads == 1) {
+            this.executor        = null;
+            this.maxPendingTasks = 0;
+        } else {
+            this.executor        = Executors.newFixedThreadPool(threads);
+            this.maxPendingTasks = 2 * threads;
+        }
+    }
+
+    /**
+     * Executes the <var>task</var>, possibly in the background. If too many tasks are pending, waits for the oldest
+     * one to complete, and reports its diagnostics.
+     *
+     * @throws IOException A previously submitted task failed
+     */
+    public void
+    submit(final Task task) throws IOException {
+
+        ExecutorService executor = this.executor;
+
+        if (executor == null) {
+            task.execute(this.errorReporter);
+            return;
+        }
+
+        // Always wait for the OLDEST task (and not for whichever completes first), so that the points at which
+        // diagnostics are reported do not depend on thread scheduling.
+        if (this.pendingTasks.size() >= this.maxPendingTasks) this.complete(this.pendingTasks.removeFirst());
+
+        final DeferredDocErrorReporter der = new DeferredDocErrorReporter();
+        Future<?>                      f   = executor.submit(() -> {
+            task.execute(der);
+            return null;
+        });
+        this.pendingTasks.add(new PendingTask(f, der));
+    }
+
+    /**
+     * Waits until all submitted tasks have completed, and shuts down the pipeline.
+     *
+     * @throws IOException One of the tasks failed
+     */
+    public void
+    finish() throws IOException {
+
+        try {
+            while (!this.pendingTasks.isEmpty()) this.complete(this.pendingTasks.removeFirst());
+        } finally {
+            this.close();
+        }
+    }
+
+    /**
+     * Shuts down the pipeline without waiting for the pending tasks to complete. Has no effect if the pipeline is
+     * already shut down.
+     */
+    public void
+    close() {
+        ExecutorService executor = this.executor;
+        if (executor != null) executor.shutdownNow();
+    }
+
+    private void
+    complete(PendingTask pendingTask) throws IOException {
+
+        try {
+            pendingTask.future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException ee) {
+            pendingTask.errorReporter.replay(this.errorReporter);
+
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException)      throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error)            throw (Error) cause;
+            throw new AssertionError(cause);
+        }
+
+        pendingTask.errorReporter.replay(this.errorReporter);
+    }
+}
@@ -0,0 +1,264 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.notemplate.javadocish.IndexPages;
+import de.unkrig.notemplate.javadocish.IndexPages.IndexEntry;
+
+/**
+ * Records, for each HTML document that was rendered, a fingerprint of its inputs and the index entries that it
+ * contributed. When the doclet runs again on the same destination directory, documents with unchanged inputs need not
+ * be rendered again, because their index entries can be taken from the manifest.
+ * <p>
+ *   The manifest is stored as a hidden ".properties" file in the destination directory. Instances are thread-safe.
+ * </p>
+ */
+public final
+class PageManifest {
+
+    /**
+     * Must be changed whenever the HTML documents change in a way that is not reflected by the fingerprints, e.g.
+     * when a template changes.
+     */
+    private static final String FORMAT_VERSION = "1";
+
+    /**
+     * An index entry contributed by a document; other than {@link IndexEntry}, it can be persisted.
+     */
+    public static final
+    class IndexItem {
+
+        public final String           key;
+        public final String           link;
+        public final String           explanation;
+        @Nullable public final String shortDescription;
+
+        /**
+         * @see IndexPages#indexEntry(String, String, String, String)
+         */
+        public
+        IndexItem(String key, String link, String explanation, @Nullable String shortDescription) {
+            this.key              = key;
+            this.link             = link;
+            this.explanation      = explanation;
+            this.shortDescription = shortDescription;
+        }
+
+        /**
+         * @return The equivalent {@link IndexEntry}, for {@link IndexPages#createIndex}
+         */
+        public IndexEntry
+        toIndexEntry() { return IndexPages.indexEntry(this.key, this.link, this.explanation, this.shortDescription); }
+    }
+
+    private static final
+    class Page {
+
+        final String          fingerprint;
+        final List<IndexItem> indexItems;
+
+        Page(String fingerprint, List<IndexItem> indexItems) {
+            this.fingerprint = fingerprint;
+            this.indexItems  = indexItems;
+        }
+    }
+
+    private final File        destination;
+    private final File        file;
+    private final String      salt;
+    private final OutputFiles outputFiles;
+
+    /**
+     * The documents that were rendered by the previous doclet run.
+     */
+    private final Map<String /*path*/, Page> previousPages = new HashMap<String, Page>();
+
+    /**
+     * The documents that were rendered or reused by this doclet run.
+     */
+    private final Map<String /*path*/, Page> pages = new TreeMap<String, Page>();
+
+    private int reused;
+
+    /**
+     * Loads the manifest of the previous doclet run from the <var>destination</var> directory, if it exists and is
+     * valid.
+     *
+     * @param salt        Additional input to all fingerprints; must change whenever the doclet options change in a
+     *                    way that affects the documents
+     * @param outputFiles Gets notified about reused documents, and writes the manifest
+     */
+    public
+    PageManifest(File destination, String salt, OutputFiles outputFiles) {
+
+        this.destination = destination;
+        this.file        = new File(destination, ".cs-doclet-pages.properties");
+        this.salt        = salt;
+        this.outputFiles = outputFiles;
+
+        if (!this.file.isFile()) return;
+
+        Properties properties = new Properties();
+        try {
+            InputStream is = new FileInputStream(this.file);
+            try {
+                properties.load(is);
+            } finally {
+                is.close();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+
+            // A corrupt manifest only means that all documents are rendered again.
+            return;
+        }
+
+        if (!PageManifest.FORMAT_VERSION.equals(properties.getProperty("format"))) return;
+
+        for (int i = 0;; i++) {
+            String prefix = "page." + i + '.';
+
+            String path        = properties.getProperty(prefix + "path");
+            String fingerprint = properties.getProperty(prefix + "fingerprint");
+            if (path == null || fingerprint == null) break;
+
+            List<IndexItem> indexItems = new ArrayList<IndexItem>();
+            for (int j = 0;; j++) {
+                String prefix2 = prefix + "index." + j + '.';
+
+                String key         = properties.getProperty(prefix2 + "key");
+                String link        = properties.getProperty(prefix2 + "link");
+                String explanation = properties.getProperty(prefix2 + "explanation");
+                if (key == null || link == null || explanation == null) break;
+
+                indexItems.add(new IndexItem(key, link, explanation, properties.getProperty(prefix2 + "description")));
+            }
+
+            this.previousPages.put(path, new Page(fingerprint, indexItems));
+        }
+    }
+
+    /**
+     * Checks whether the document was rendered by the previous doclet run from the same inputs, and still exists.
+     *
+     * @param path        The document's path, relative to the destination directory
+     * @param fingerprint A digest of the document's inputs
+     * @return            The index entries that the document contributed, or {@code null} iff the document must be
+     *                    rendered (and then {@link #rendered(String, byte[], List)})
+     */
+    @Nullable public synchronized List<IndexItem>
+    reuse(String path, byte[] fingerprint) {
+
+        Page previousPage = this.previousPages.get(path);
+        if (
+            previousPage == null
+            || !previousPage.fingerprint.equals(this.fingerprint(fingerprint))
+            || !new File(this.destination, path).isFile()
+        ) return null;
+
+        this.pages.put(path, previousPage);
+        this.reused++;
+        this.outputFiles.retain(new File(this.destination, path));
+
+        return Collections.unmodifiableList(previousPage.indexItems);
+    }
+
+    /**
+     * Records that the document was rendered without errors and warnings; documents whose rendering reported any are
+     * not recorded, so that the next doclet run renders them (and reports the problems) again.
+     *
+     * @param path        The document's path, relative to the destination directory
+     * @param fingerprint A digest of the document's inputs
+     * @param indexItems  The index entries that the document contributed
+     */
+    public synchronized void
+    rendered(String path, byte[] fingerprint, List<IndexItem> indexItems) {
+        this.pages.put(path, new Page(this.fingerprint(fingerprint), new ArrayList<IndexItem>(indexItems)));
+    }
+
+    /**
+     * @return The number of documents that were not rendered again, because their inputs had not changed
+     */
+    public synchronized int
+    reused() { return this.reused; }
+
+    /**
+     * Writes the manifest for the documents that were rendered or reused by this doclet run.
+     */
+    public synchronized void
+    store() throws IOException {
+
+        this.outputFiles.printToFile(this.file, Charset.forName("ISO-8859-1"), pw -> {
+            PropertiesWriter w = new PropertiesWriter(pw);
+
+            w.property("format", 0, PageManifest.FORMAT_VERSION);
+
+            int i = 0;
+            for (Entry<String, Page> e : this.pages.entrySet()) {
+                String prefix = "page." + i++ + '.';
+
+                w.property(prefix + "path", 0, e.getKey());
+                w.property(prefix + "fingerprint", 0, e.getValue().fingerprint);
+
+                int j = 0;
+                for (IndexItem indexItem : e.getValue().indexItems) {
+                    String prefix2 = prefix + "index." + j++ + '.';
+
+                    w.property(prefix2 + "key", 0, indexItem.key);
+                    w.property(prefix2 + "link", 0, indexItem.link);
+                    w.property(prefix2 + "explanation", 0, indexItem.explanation);
+                    if (indexItem.shortDescription != null) {
+                        w.property(prefix2 + "description", 0, indexItem.shortDescription);
+                    }
+                }
+            }
+        });
+    }
+
+    private String
+    fingerprint(byte[] inputs) {
+        MessageDigest md = Fingerprints.sha256();
+        Fingerprints.update(md, PageManifest.FORMAT_VERSION, this.salt);
+        md.update(inputs);
+        return Fingerprints.hex(md.digest());
+    }
+}
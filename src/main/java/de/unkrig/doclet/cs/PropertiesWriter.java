@@ -0,0 +1,169 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes ".properties" files in the format that {@link java.util.Properties#load(java.io.InputStream)} expects: Keys
+ * and values are escaped on the fly, in particular all characters outside the printable ASCII range are written as
+ * "{@code \}{@code uXXXX}" escapes, so the output can be encoded with ISO-8859-1 (or any other ASCII-compatible
+ * charset) without loss.
+ */
+public final
+class PropertiesWriter {
+
+    /** The line separator, as used by {@code "%n"} in format strings. */
+    public static final String NL = System.lineSeparator();
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final Writer out;
+
+    public
+    PropertiesWriter(Writer out) { this.out = out; }
+
+    /**
+     * Writes the <var>text</var> verbatim; must only be used for constant text, like comments and empty lines.
+     */
+    public PropertiesWriter
+    raw(String text) throws IOException {
+        this.out.write(text);
+        return this;
+    }
+
+    /**
+     * Writes "<var>key</var>{@code  = }<var>value</var>" and a line separator.
+     *
+     * @param keyWidth The escaped <var>key</var> is padded with spaces to this width
+     */
+    public PropertiesWriter
+    property(String key, int keyWidth, CharSequence value) throws IOException {
+
+        for (int i = this.escape(key, 0, key.length(), true); i < keyWidth; i++) this.out.write(' ');
+        this.out.write(" = ");
+        this.escape(value, 0, value.length(), false);
+        this.out.write(PropertiesWriter.NL);
+        return this;
+    }
+
+    /**
+     * Writes "<var>key</var>{@code  =}", and then each line of the <var>value</var> on a line of its own, indented with
+     * a TAB and joined with "{@code \n}" and line continuations.
+     */
+    public PropertiesWriter
+    multiLineProperty(String key, CharSequence value) throws IOException {
+
+        this.escape(key, 0, key.length(), true);
+        this.out.write(" =\\");
+        this.out.write(PropertiesWriter.NL);
+
+        // Split the value into lines in place, exactly like "BufferedReader.readLine()" would.
+        boolean isFirst = true;
+        for (int start = 0, n = value.length(); start < n;) {
+
+            int end = start;
+            while (end < n && value.charAt(end) != '\n' && value.charAt(end) != '\r') end++;
+
+            if (isFirst) {
+                isFirst = false;
+            } else {
+                this.out.write("\\n\\");
+                this.out.write(PropertiesWriter.NL);
+            }
+
+            this.out.write('\t');
+            this.escape(value, start, end, false);
+
+            start = end;
+            if (start < n && value.charAt(start) == '\r') start++;
+            if (start < n && value.charAt(start) == '\n') start++;
+        }
+
+        this.out.write(PropertiesWriter.NL);
+        return this;
+    }
+
+    /**
+     * Writes the characters <var>start</var>...<var>end</var> of <var>s</var>, escaped for a key or a value.
+     *
+     * @return The number of characters written
+     */
+    private int
+    escape(CharSequence s, int start, int end, boolean isKey) throws IOException {
+
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+
+            switch (c) {
+
+            case '\\': this.out.write("\\\\"); count += 2; continue;
+            case '\t': this.out.write("\\t");  count += 2; continue;
+            case '\n': this.out.write("\\n");  count += 2; continue;
+            case '\r': this.out.write("\\r");  count += 2; continue;
+            case '\f': this.out.write("\\f");  count += 2; continue;
+
+            case ' ':
+                if (isKey || i == start) {
+                    this.out.write('\\');
+                    count++;
+                }
+                break;
+
+            case '=':
+            case ':':
+            case '#':
+            case '!':
+                if (isKey) {
+                    this.out.write('\\');
+                    count++;
+                }
+                break;
+
+            default:
+                if (c < 0x20 || c > 0x7e) {
+                    this.out.write('\\');
+                    this.out.write('u');
+                    this.out.write(PropertiesWriter.HEX_DIGITS[(c >> 12) & 0xf]);
+                    this.out.write(PropertiesWriter.HEX_DIGITS[(c >> 8) & 0xf]);
+                    this.out.write(PropertiesWriter.HEX_DIGITS[(c >> 4) & 0xf]);
+                    this.out.write(PropertiesWriter.HEX_DIGITS[c & 0xf]);
+                    count += 6;
+                    continue;
+                }
+                break;
+            }
+
+            this.out.write(c);
+            count++;
+        }
+
+        return count;
+    }
+}
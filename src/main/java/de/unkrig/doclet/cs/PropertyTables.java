@@ -0,0 +1,113 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.RootDoc;
+
+import de.unkrig.commons.doclet.html.Html;
+import de.unkrig.commons.lang.protocol.Consumer;
+import de.unkrig.doclet.cs.CsDoclet.OptionProvider;
+import de.unkrig.doclet.cs.CsDoclet.RuleProperty;
+
+/**
+ * Determines the properties of rules, including those inherited from their superclasses.
+ * <p>
+ *   The property table of each class is computed only once: It consists of the (cached) property table of its
+ *   superclass, plus the class's own properties, which override inherited properties with the same name. Thus, the
+ *   properties of an abstract base check are parsed only once, and not once for each of its subclasses.
+ * </p>
+ */
+public final
+class PropertyTables {
+
+    private final Map<ClassDoc, Collection<RuleProperty>>
+    propertyTables = new IdentityHashMap<ClassDoc, Collection<RuleProperty>>();
+
+    private final OptionProviders optionProviders;
+    private final Descriptions    descriptions;
+    private final boolean         generateHtml;
+
+    /**
+     * @param optionProviders Creates the option providers of the properties
+     * @param descriptions    Renders the descriptions of the properties
+     * @param generateHtml    Whether to compute the fields that only the HTML documentation uses
+     */
+    public
+    PropertyTables(OptionProviders optionProviders, Descriptions descriptions, boolean generateHtml) {
+        this.optionProviders = optionProviders;
+        this.descriptions    = descriptions;
+        this.generateHtml    = generateHtml;
+    }
+
+    /**
+     * Must only be invoked by the doclet thread, because it accesses the javadoc API.
+     *
+     * @param usedOptionProviders Gets the option providers needed by the properties; notice that these are reported
+     *                            only when a property table is computed, and not when it is taken from the cache
+     * @return                    The properties of the <var>classDoc</var> and its superclasses, inherited properties
+     *                            first; not modifiable
+     */
+    public Collection<RuleProperty>
+    get(ClassDoc classDoc, RootDoc rootDoc, Html html, Consumer<? super OptionProvider> usedOptionProviders) {
+
+        Collection<RuleProperty> result = this.propertyTables.get(classDoc);
+        if (result != null) return result;
+
+        Map<String /*propertyName*/, RuleProperty> properties = new LinkedHashMap<String, RuleProperty>();
+
+        ClassDoc superclass = classDoc.superclass();
+        if (superclass != null) {
+            for (RuleProperty p : this.get(superclass, rootDoc, html, usedOptionProviders)) {
+                properties.put(p.name(), p);
+            }
+        }
+
+        Collection<RuleProperty>
+        ownProperties = CsDoclet.properties(
+            classDoc,
+            rootDoc,
+            html,
+            this.optionProviders,
+            usedOptionProviders,
+            this.generateHtml,
+            this.descriptions
+        );
+        for (RuleProperty p : ownProperties) properties.put(p.name(), p);
+
+        result = Collections.unmodifiableCollection(properties.values());
+        this.propertyTables.put(classDoc, result);
+
+        return result;
+    }
+}
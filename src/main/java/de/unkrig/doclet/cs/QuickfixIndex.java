@@ -0,0 +1,127 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.doclet.cs.CsDoclet.Quickfix;
+import de.unkrig.doclet.cs.CsDoclet.Rule;
+
+/**
+ * The relation between the rules and the quickfixes that they offer.
+ * <p>
+ *   First, all quickfixes are {@link #add(Quickfix) added}, so that the rules can {@link #get(String) look up}
+ *   their quickfixes when they are derived. Then, when all rules are known, the index is {@link
+ *   #complete(Collection) completed}, and from then on maps each quickfix to the rules that offer it.
+ * </p>
+ */
+public final
+class QuickfixIndex {
+
+    private final Map<String /*quickfixClassName*/, Quickfix> quickfixes = new TreeMap<String, Quickfix>();
+
+    @Nullable private Map<Quickfix, Rule[]> rulesByQuickfix;
+
+    /**
+     * Adds a quickfix to this index. Must not be invoked after {@link #complete(Collection)}.
+     */
+    public synchronized void
+    add(Quickfix quickfix) {
+
+        if (this.rulesByQuickfix != null) throw new IllegalStateException("Quickfix index is already complete");
+
+        this.quickfixes.put(quickfix.className(), quickfix);
+    }
+
+    /**
+     * @return The quickfix with the given <var>className</var>, or {@code null}
+     */
+    @Nullable public synchronized Quickfix
+    get(String className) { return this.quickfixes.get(className); }
+
+    /**
+     * @return All quickfixes in this index, ordered by class name
+     */
+    public synchronized Collection<Quickfix>
+    quickfixes() { return Collections.unmodifiableCollection(new ArrayList<Quickfix>(this.quickfixes.values())); }
+
+    /**
+     * Determines, for each quickfix, the rules that offer it. After that, no more quickfixes can be added.
+     *
+     * @param allRules All rules, with their {@link Rule#quickfixes()} already resolved
+     */
+    public synchronized void
+    complete(Collection<Rule> allRules) {
+
+        if (this.rulesByQuickfix != null) throw new IllegalStateException("Quickfix index is already complete");
+
+        Map<Quickfix, List<Rule>> tmp = new IdentityHashMap<Quickfix, List<Rule>>();
+        for (Rule rule : allRules) {
+
+            Quickfix[] qfs = rule.quickfixes();
+            if (qfs == null) continue;
+
+            for (Quickfix qf : qfs) {
+                List<Rule> rules = tmp.get(qf);
+                if (rules == null) tmp.put(qf, (rules = new ArrayList<Rule>()));
+                if (!rules.contains(rule)) rules.add(rule);
+            }
+        }
+
+        Map<Quickfix, Rule[]> rulesByQuickfix = new IdentityHashMap<Quickfix, Rule[]>();
+        for (Map.Entry<Quickfix, List<Rule>> e : tmp.entrySet()) {
+            List<Rule> rules = e.getValue();
+            rulesByQuickfix.put(e.getKey(), rules.toArray(new Rule[rules.size()]));
+        }
+
+        this.rulesByQuickfix = Collections.unmodifiableMap(rulesByQuickfix);
+    }
+
+    /**
+     * @return The rules that offer the <var>quickfix</var>, in the order in which they were passed to {@link
+     *         #complete(Collection)}; the caller must not modify the array
+     * @throws IllegalStateException This index is not yet {@link #complete(Collection) complete}
+     */
+    public synchronized Rule[]
+    rulesOf(Quickfix quickfix) {
+
+        Map<Quickfix, Rule[]> rulesByQuickfix = this.rulesByQuickfix;
+        if (rulesByQuickfix == null) throw new IllegalStateException("Quickfix index is not yet complete");
+
+        Rule[] result = rulesByQuickfix.get(quickfix);
+        return result != null ? result : QuickfixIndex.NO_RULES;
+    }
+
+    private static final Rule[] NO_RULES = new Rule[0];
+}
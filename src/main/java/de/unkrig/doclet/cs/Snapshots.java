@@ -0,0 +1,235 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedMap;
+
+import com.sun.javadoc.Doc;
+import com.sun.javadoc.SourcePosition;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.doclet.cs.CsDoclet.OptionProvider;
+import de.unkrig.doclet.cs.CsDoclet.Quickfix;
+import de.unkrig.doclet.cs.CsDoclet.Rule;
+import de.unkrig.doclet.cs.CsDoclet.RuleProperty;
+import de.unkrig.doclet.cs.CsDoclet.RuleProperty.Datatype;
+import de.unkrig.doclet.cs.CsDoclet.ValueOption;
+
+/**
+ * Creates immutable copies ("snapshots") of the elements of the rule model, with all their descriptions rendered.
+ * <p>
+ *   The model renders its descriptions on demand (see {@link Descriptions}), which accesses the javadoc API. Hence
+ *   the doclet thread creates snapshots of the elements that an output task needs before it submits the task, and
+ *   the task uses only the snapshots.
+ * </p>
+ * <p>
+ *   The quickfixes of a rule snapshot, and the rules of a quickfix snapshot, are snapshots that go only one level
+ *   deeper: <em>Their</em> rules, quickfixes and properties are the original model elements. Notably, a rule can be
+ *   snapshotted before the rules of its quickfixes are known.
+ * </p>
+ */
+public final
+class Snapshots {
+
+    private Snapshots() {}
+
+    /**
+     * Must only be invoked by the doclet thread, because it accesses the javadoc API.
+     *
+     * @return Snapshots of the <var>rules</var>, in the same order
+     */
+    public static List<Rule>
+    rules(Collection<Rule> rules) {
+
+        List<Rule> result = new ArrayList<Rule>(rules.size());
+        for (Rule rule : rules) result.add(Snapshots.rule(rule, true));
+
+        return result;
+    }
+
+    /**
+     * Must only be invoked by the doclet thread, because it accesses the javadoc API.
+     *
+     * @return A snapshot of the <var>rule</var>, its properties and its quickfixes
+     */
+    public static Rule
+    rule(Rule rule) { return Snapshots.rule(rule, true); }
+
+    /**
+     * Must only be invoked by the doclet thread, because it accesses the javadoc API.
+     *
+     * @return A snapshot of the <var>quickfix</var> and the rules that offer it
+     */
+    public static Quickfix
+    quickfix(Quickfix quickfix) { return Snapshots.quickfix(quickfix, true); }
+
+    /**
+     * Must only be invoked by the doclet thread, because it accesses the javadoc API.
+     *
+     * @return A snapshot of the <var>optionProvider</var> and its value options
+     */
+    public static OptionProvider
+    optionProvider(OptionProvider optionProvider) {
+
+        final String        name             = optionProvider.name();
+        final String        className        = optionProvider.className();
+        final String        shortDescription = optionProvider.shortDescription();
+        final String        longDescription  = optionProvider.longDescription();
+        final ValueOption[] valueOptions     = optionProvider.valueOptions().clone();
+
+        for (int i = 0; i < valueOptions.length; i++) valueOptions[i] = Snapshots.valueOption(valueOptions[i]);
+
+        return new OptionProvider() {
+            @Override @Nullable public String name()             { return name;             }
+            @Override @Nullable public String className()        { return className;        }
+            @Override @Nullable public String shortDescription() { return shortDescription; }
+            @Override @Nullable public String longDescription()  { return longDescription;  }
+            @Override public ValueOption[]    valueOptions()     { return valueOptions;     }
+        };
+    }
+
+    /**
+     * @param deep Whether to take snapshots of the properties and quickfixes of the <var>rule</var>, too
+     */
+    private static Rule
+    rule(final Rule rule, boolean deep) {
+
+        final String                   shortDescription = rule.shortDescription();
+        final String                   longDescription  = rule.longDescription();
+        final Collection<RuleProperty> properties;
+        final Quickfix[]               quickfixes;
+        if (deep) {
+
+            List<RuleProperty> tmp = new ArrayList<RuleProperty>();
+            for (RuleProperty property : rule.properties()) tmp.add(Snapshots.property(property));
+            properties = tmp;
+
+            Quickfix[] qfs = rule.quickfixes();
+            if (qfs != null) {
+                qfs = qfs.clone();
+                for (int i = 0; i < qfs.length; i++) qfs[i] = Snapshots.quickfix(qfs[i], false);
+            }
+            quickfixes = qfs;
+        } else {
+            properties = rule.properties();
+            quickfixes = rule.quickfixes();
+        }
+
+        return new Rule() {
+            @Override public Doc                       ref()              { return rule.ref();            }
+            @Override public SourcePosition            position()         { return rule.position();       }
+            @Override public String                    familySingular()   { return rule.familySingular(); }
+            @Override public String                    familyPlural()     { return rule.familyPlural();   }
+            @Override public String                    group()            { return rule.group();          }
+            @Override public String                    groupName()        { return rule.groupName();      }
+            @Override public String                    name()             { return rule.name();           }
+            @Override public String                    internalName()     { return rule.internalName();   }
+            @Override public String                    simpleName()       { return rule.simpleName();     }
+            @Override public String                    parent()           { return rule.parent();         }
+            @Override public String                    shortDescription() { return shortDescription;      }
+            @Override public String                    longDescription()  { return longDescription;       }
+            @Override public Collection<RuleProperty>  properties()       { return properties;            }
+            @Override @Nullable public Quickfix[]      quickfixes()       { return quickfixes;            }
+            @Override @Nullable public Boolean         hasSeverity()      { return rule.hasSeverity();    }
+            @Override public SortedMap<String, String> messages()         { return rule.messages();       }
+        };
+    }
+
+    /**
+     * @param deep Whether to take snapshots of the rules that offer the <var>quickfix</var>, too; if {@code false},
+     *             {@link Quickfix#rules()} is only invoked when the snapshot's {@link Quickfix#rules()} is, because
+     *             the rules of a quickfix are not known before all rules were derived
+     */
+    private static Quickfix
+    quickfix(final Quickfix quickfix, final boolean deep) {
+
+        final String shortDescription = quickfix.shortDescription();
+        final String longDescription  = quickfix.longDescription();
+        final Rule[] rules;
+        if (deep) {
+            Rule[] tmp = quickfix.rules();
+            if (tmp != null) {
+                tmp = tmp.clone();
+                for (int i = 0; i < tmp.length; i++) tmp[i] = Snapshots.rule(tmp[i], false);
+            }
+            rules = tmp;
+        } else {
+            rules = null;
+        }
+
+        return new Quickfix() {
+            @Override public Doc              ref()              { return quickfix.ref();                 }
+            @Override @Nullable public String className()        { return quickfix.className();           }
+            @Override public String           label()            { return quickfix.label();               }
+            @Override public String           simpleName()       { return quickfix.simpleName();          }
+            @Override public String           shortDescription() { return shortDescription;               }
+            @Override public String           longDescription()  { return longDescription;                }
+            @Override @Nullable public Rule[] rules()            { return deep ? rules : quickfix.rules(); }
+        };
+    }
+
+    private static RuleProperty
+    property(final RuleProperty property) {
+
+        final String         shortDescription = property.shortDescription();
+        final String         longDescription  = property.longDescription();
+        final OptionProvider optionProvider;
+        {
+            OptionProvider op = property.optionProvider();
+            optionProvider = op == null ? null : Snapshots.optionProvider(op);
+        }
+
+        return new RuleProperty() {
+            @Override public Doc                      ref()                  { return property.ref();                  }
+            @Override public SourcePosition           position()             { return property.position();             }
+            @Override public String                   name()                 { return property.name();                 }
+            @Override public String                   shortDescription()     { return shortDescription;                }
+            @Override public String                   longDescription()      { return longDescription;                 }
+            @Override public Datatype                 datatype()             { return property.datatype();             }
+            @Override @Nullable public OptionProvider optionProvider()       { return optionProvider;                  }
+            @Override @Nullable public Object         defaultValue()         { return property.defaultValue();         }
+            @Override @Nullable public Object         overrideDefaultValue() { return property.overrideDefaultValue(); }
+        };
+    }
+
+    private static ValueOption
+    valueOption(ValueOption valueOption) {
+
+        final String name             = valueOption.name();
+        final String shortDescription = valueOption.shortDescription();
+        final String longDescription  = valueOption.longDescription();
+
+        return new ValueOption() {
+            @Override public String           name()             { return name;             }
+            @Override @Nullable public String shortDescription() { return shortDescription; }
+            @Override @Nullable public String longDescription()  { return longDescription;  }
+        };
+    }
+}
@@ -0,0 +1,214 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Computes line-based differences between two texts, in "unified diff" format.
+ */
+public final
+class UnifiedDiff {
+
+    private UnifiedDiff() {}
+
+    /**
+     * The number of unchanged lines that are shown before and after each change.
+     */
+    private static final int CONTEXT = 3;
+
+    /**
+     * Limits the effort (and the memory) that is spent on texts with many differences.
+     */
+    private static final int MAX_DIFFERENCES = 2000;
+
+    private static final
+    class Line {
+
+        final char   type; // ' ', '-' or '+'
+        final String text;
+        final int    oldIndex, newIndex;
+
+        Line(char type, String text, int oldIndex, int newIndex) {
+            this.type     = type;
+            this.text     = text;
+            this.oldIndex = oldIndex;
+            this.newIndex = newIndex;
+        }
+    }
+
+    /**
+     * @return The differences between the two texts, in "unified diff" format, or {@code null} iff the texts are
+     *         too different
+     */
+    @Nullable public static String
+    diff(String oldText, String newText, String oldLabel, String newLabel) {
+
+        List<Line> lines = UnifiedDiff.editScript(UnifiedDiff.lines(oldText), UnifiedDiff.lines(newText));
+        if (lines == null) return null;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("--- ").append(oldLabel).append('\n');
+        sb.append("+++ ").append(newLabel).append('\n');
+
+        int n = lines.size();
+        for (int i = 0; i < n;) {
+
+            // Find the next change.
+            while (i < n && lines.get(i).type == ' ') i++;
+            if (i == n) break;
+
+            // Merge the changes that are separated by no more than 2 * CONTEXT unchanged lines.
+            int end = i + 1;
+            for (int j = end; j < n;) {
+                if (lines.get(j).type != ' ') {
+                    end = ++j;
+                    continue;
+                }
+                int k = j;
+                while (k < n && lines.get(k).type == ' ') k++;
+                if (k == n || k - j > 2 * UnifiedDiff.CONTEXT) break;
+                j = k;
+            }
+
+            int from = Math.max(0, i - UnifiedDiff.CONTEXT);
+            int to   = Math.min(n, end + UnifiedDiff.CONTEXT);
+
+            int oldCount = 0, newCount = 0;
+            for (int j = from; j < to; j++) {
+                char type = lines.get(j).type;
+                if (type != '+') oldCount++;
+                if (type != '-') newCount++;
+            }
+
+            Line first = lines.get(from);
+            sb.append("@@ -").append(oldCount == 0 ? first.oldIndex : first.oldIndex + 1).append(',').append(oldCount);
+            sb.append(" +").append(newCount == 0 ? first.newIndex : first.newIndex + 1).append(',').append(newCount);
+            sb.append(" @@\n");
+
+            for (int j = from; j < to; j++) {
+                Line line = lines.get(j);
+                sb.append(line.type).append(line.text).append('\n');
+            }
+
+            i = to;
+        }
+
+        return sb.toString();
+    }
+
+    private static String[]
+    lines(String text) {
+
+        String[] result = text.split("\r\n|\r|\n", -1);
+
+        // Text that ends with a line separator has no "last line".
+        return (
+            result.length > 0 && result[result.length - 1].isEmpty()
+            ? Arrays.copyOf(result, result.length - 1)
+            : result
+        );
+    }
+
+    /**
+     * Implements E. Myers' "O(ND)" difference algorithm.
+     *
+     * @return {@code null} iff there are more than {@link #MAX_DIFFERENCES} differences
+     */
+    @Nullable private static List<Line>
+    editScript(String[] a, String[] b) {
+
+        int n = a.length, m = b.length, max = Math.min(n + m, UnifiedDiff.MAX_DIFFERENCES);
+
+        // "v[offset + k]" is the furthest x on diagonal k; "trace.get(d)" is the part of "v" before round d that the
+        // backtracking needs.
+        int         offset = max + 1;
+        int[]       v      = new int[2 * max + 3];
+        List<int[]> trace  = new ArrayList<int[]>();
+        int         d;
+        FIND:
+        for (d = 0;; d++) {
+            if (d > max) return null;
+
+            trace.add(Arrays.copyOfRange(v, offset - d - 1, offset + d + 2));
+
+            for (int k = -d; k <= d; k += 2) {
+                int x = (
+                    k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                    ? v[offset + k + 1]
+                    : v[offset + k - 1] + 1
+                );
+                int y = x - k;
+                while (x < n && y < m && a[x].equals(b[y])) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) break FIND;
+            }
+        }
+
+        // Backtrack from the end to the start.
+        List<Line> result = new ArrayList<Line>();
+        int        x      = n, y = m;
+        for (; d >= 0; d--) {
+            int[] vd = trace.get(d);                      // "vd[d + 1 + k]" is "v[offset + k]" before round d
+            int   k  = x - y;
+
+            int prevK = (
+                k == -d || (k != d && vd[d + 1 + k - 1] < vd[d + 1 + k + 1])
+                ? k + 1
+                : k - 1
+            );
+            int prevX = d == 0 ? 0 : vd[d + 1 + prevK];
+            int prevY = d == 0 ? 0 : prevX - prevK;
+
+            while (x > prevX && y > prevY) {
+                x--;
+                y--;
+                result.add(new Line(' ', a[x], x, y));
+            }
+            if (d > 0) {
+                if (x == prevX) {
+                    y--;
+                    result.add(new Line('+', b[y], x, y));
+                } else {
+                    x--;
+                    result.add(new Line('-', a[x], x, y));
+                }
+            }
+        }
+
+        Collections.reverse(result);
+        return result;
+    }
+}
@@ -0,0 +1,121 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * A minimal, streaming XML emitter: Constant markup is written as is, while variable text and attribute values are
+ * escaped on the fly, without creating intermediate strings.
+ */
+public final
+class XmlWriter {
+
+    /** The line separator, as used by {@code "%n"} in format strings. */
+    public static final String NL = System.lineSeparator();
+
+    private final Writer out;
+
+    public
+    XmlWriter(Writer out) { this.out = out; }
+
+    /**
+     * Writes the <var>markup</var> verbatim; must only be used for constant, well-formed markup.
+     */
+    public XmlWriter
+    raw(String markup) throws IOException {
+        this.out.write(markup);
+        return this;
+    }
+
+    /**
+     * Writes the {@link String#valueOf(Object) string value} of <var>value</var>, with "{@code &}", "{@code <}",
+     * "{@code >}" and carriage returns (which XML parsers would otherwise normalize to line feeds) escaped.
+     */
+    public XmlWriter
+    text(@Nullable Object value) throws IOException {
+        this.escape(String.valueOf(value), false);
+        return this;
+    }
+
+    /**
+     * Writes the {@link String#valueOf(Object) string value} of <var>value</var>, with "{@code &}", "{@code <}",
+     * "{@code >}", "{@code "}" and line breaks and tabs escaped, so that it can be used as a double-quoted attribute
+     * value.
+     */
+    public XmlWriter
+    attributeValue(@Nullable Object value) throws IOException {
+        this.escape(String.valueOf(value), true);
+        return this;
+    }
+
+    /**
+     * Writes an XML comment; "{@code --}" sequences in the <var>text</var>, which are not allowed in comments, are
+     * broken up by inserting a space between each pair of adjacent hyphens.
+     */
+    public XmlWriter
+    comment(String text) throws IOException {
+        this.out.write("<!-- ");
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c == '-' && i > 0 && text.charAt(i - 1) == '-') this.out.write(' ');
+            this.out.write(c);
+        }
+        this.out.write(" -->");
+        return this;
+    }
+
+    private void
+    escape(String s, boolean attribute) throws IOException {
+
+        // Write the longest runs of characters that need no escaping in one call.
+        int start = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+
+            String replacement;
+            switch (s.charAt(i)) {
+            case '&':  replacement = "&amp;";                          break;
+            case '<':  replacement = "&lt;";                           break;
+            case '>':  replacement = "&gt;";                           break;
+            case '"':  replacement = attribute ? "&quot;" : null;      break;
+            case '\n': replacement = attribute ? "&#10;"  : null;      break;
+            case '\r': replacement = "&#13;";                          break;
+            case '\t': replacement = attribute ? "&#9;"   : null;      break;
+            default:   replacement = null;                             break;
+            }
+            if (replacement == null) continue;
+
+            this.out.write(s, start, i - start);
+            this.out.write(replacement);
+            start = i + 1;
+        }
+        this.out.write(s, start, s.length() - start);
+    }
+}
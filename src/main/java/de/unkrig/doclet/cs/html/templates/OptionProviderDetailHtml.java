@@ -32,15 +32,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import com.sun.javadoc.RootDoc;
-
-import de.unkrig.commons.doclet.html.Html;
 import de.unkrig.commons.lang.AssertionUtil;
 import de.unkrig.commons.lang.protocol.Consumer;
 import de.unkrig.commons.util.collections.ElementWithContext;
 import de.unkrig.doclet.cs.CsDoclet.OptionProvider;
 import de.unkrig.doclet.cs.CsDoclet.ValueOption;
-import de.unkrig.notemplate.javadocish.IndexPages.IndexEntry;
+import de.unkrig.doclet.cs.PageManifest.IndexItem;
 import de.unkrig.notemplate.javadocish.Options;
 import de.unkrig.notemplate.javadocish.templates.AbstractDetailHtml;
 import de.unkrig.notemplate.javadocish.templates.AbstractRightFrameHtml;
@@ -54,15 +51,14 @@ class OptionProviderDetailHtml extends AbstractDetailHtml {
     static { AssertionUtil.enableAssertionsForThisClass(); }
 
     /**
-     * Renderer for the "per-option provider" documentation document.
+     * Renderer for the "per-option provider" documentation document. Does not access the javadoc API, so that it can
+     * be executed by any thread.
      */
     public void
     render(
         final ElementWithContext<OptionProvider> optionProviderTriplet,
-        final Html                               html,
-        final RootDoc                            rootDoc,
         Options                                  options,
-        Consumer<? super IndexEntry>             indexEntries
+        Consumer<? super IndexItem>              indexEntries
     ) {
 
         final OptionProvider previousOptionProvider = optionProviderTriplet.previous();
@@ -30,17 +30,12 @@ package de.unkrig.doclet.cs.html.templates;
 
 import java.util.Collections;
 
-import com.sun.javadoc.RootDoc;
-
-import de.unkrig.commons.doclet.html.Html;
 import de.unkrig.commons.lang.AssertionUtil;
 import de.unkrig.commons.lang.protocol.Consumer;
-import de.unkrig.commons.lang.protocol.Longjump;
 import de.unkrig.commons.util.collections.ElementWithContext;
 import de.unkrig.doclet.cs.CsDoclet.Quickfix;
 import de.unkrig.doclet.cs.CsDoclet.Rule;
-import de.unkrig.notemplate.javadocish.IndexPages;
-import de.unkrig.notemplate.javadocish.IndexPages.IndexEntry;
+import de.unkrig.doclet.cs.PageManifest.IndexItem;
 import de.unkrig.notemplate.javadocish.Options;
 import de.unkrig.notemplate.javadocish.templates.AbstractDetailHtml;
 import de.unkrig.notemplate.javadocish.templates.AbstractRightFrameHtml;
@@ -54,15 +49,17 @@ class QuickfixDetailHtml extends AbstractDetailHtml {
     static { AssertionUtil.enableAssertionsForThisClass(); }
 
     /**
-     * Renderer for the "per-quickfix" documentation document.
+     * Renderer for the "per-quickfix" documentation document. Does not access the javadoc API, so that it can be
+     * executed by any thread.
+     *
+     * @param ruleLinks The links to the {@link Quickfix#rules() rules} that offer the quickfix, in the same order
      */
     public void
     render(
         final ElementWithContext<Quickfix> quickfixTriplet,
-        final Html                         html,
-        final RootDoc                      rootDoc,
+        final String[]                     ruleLinks,
         Options                            options,
-        Consumer<? super IndexEntry>       indexEntries
+        Consumer<? super IndexItem>        indexEntries
     ) {
 
         Quickfix previousQuickfix = quickfixTriplet.previous();
@@ -72,7 +69,7 @@ class QuickfixDetailHtml extends AbstractDetailHtml {
         // Index entry for the quickfix.
         {
             String ruleLink = "quickfixes/" + quickfix.simpleName() + ".html";
-            indexEntries.consume(IndexPages.indexEntry(
+            indexEntries.consume(new IndexItem(
                 quickfix.label(),           // key
                 ruleLink,                   // link
                 "Quickfix",                 // explanation
@@ -137,23 +134,10 @@ class QuickfixDetailHtml extends AbstractDetailHtml {
 "        <h3>Checks offering this quickfixes:</h3>",
 "          <dl>"
                     );
-                    for (Rule rule : rules) {
-                        String link;
-                        try {
-                            link = html.makeLink(
-                                quickfix.ref(), // from
-                                rule.ref(),     // to
-                                true,           // plain
-                                rule.name(),    // label
-                                null,           // target
-                                rootDoc
-                            );
-                        } catch (Longjump l) {
-                            link = rule.name();
-                        }
+                    for (int i = 0; i < rules.length; i++) {
                         this.l(
-"            <dt>" + link + "</dt>",
-"            <dd>" + rule.shortDescription() + "</dd>"
+"            <dt>" + ruleLinks[i] + "</dt>",
+"            <dd>" + rules[i].shortDescription() + "</dd>"
                         );
                     }
                     this.l(
@@ -34,13 +34,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import com.sun.javadoc.RootDoc;
+import com.sun.javadoc.DocErrorReporter;
 
-import de.unkrig.commons.doclet.html.Html;
 import de.unkrig.commons.lang.AssertionUtil;
 import de.unkrig.commons.lang.StringUtil;
 import de.unkrig.commons.lang.protocol.Consumer;
-import de.unkrig.commons.lang.protocol.Longjump;
 import de.unkrig.commons.nullanalysis.Nullable;
 import de.unkrig.commons.util.collections.ElementWithContext;
 import de.unkrig.doclet.cs.CsDoclet.OptionProvider;
@@ -48,8 +46,7 @@ import de.unkrig.doclet.cs.CsDoclet.Quickfix;
 import de.unkrig.doclet.cs.CsDoclet.Rule;
 import de.unkrig.doclet.cs.CsDoclet.RuleProperty;
 import de.unkrig.doclet.cs.CsDoclet.ValueOption;
-import de.unkrig.notemplate.javadocish.IndexPages;
-import de.unkrig.notemplate.javadocish.IndexPages.IndexEntry;
+import de.unkrig.doclet.cs.PageManifest.IndexItem;
 import de.unkrig.notemplate.javadocish.Options;
 import de.unkrig.notemplate.javadocish.templates.AbstractDetailHtml;
 import de.unkrig.notemplate.javadocish.templates.AbstractRightFrameHtml;
@@ -63,15 +60,21 @@ class RuleDetailHtml extends AbstractDetailHtml {
     static { AssertionUtil.enableAssertionsForThisClass(); }
 
     /**
-     * Renderer for the "per-rule" documentation document.
+     * Renderer for the "per-rule" documentation document. Does not access the javadoc API, so that it can be
+     * executed by any thread.
+     *
+     * @param ruleClassName The name of the rule's class, relative to its package
+     * @param quickfixLinks The links to the {@link Rule#quickfixes() quickfixes} of the rule, in the same order
+     * @param errorReporter Gets the errors that are detected while rendering
      */
     public void
     render(
         final ElementWithContext<Rule> ruleTriplet,
-        final Html                     html,
-        final RootDoc                  rootDoc,
+        String                         ruleClassName,
+        final String[]                 quickfixLinks,
+        DocErrorReporter               errorReporter,
         Options                        options,
-        Consumer<? super IndexEntry>   indexEntries
+        Consumer<? super IndexItem>    indexEntries
     ) {
 
         final Rule previousRule = ruleTriplet.previous();
@@ -81,7 +84,7 @@ class RuleDetailHtml extends AbstractDetailHtml {
         // Index entry for rule.
         {
             String ruleLink = rule.familyPlural() + "/" + rule.simpleName() + ".html";
-            indexEntries.consume(IndexPages.indexEntry(
+            indexEntries.consume(new IndexItem(
                 rule.name(),            // key
                 ruleLink,               // link
                 "Rule",                 // explanation
@@ -115,7 +118,7 @@ class RuleDetailHtml extends AbstractDetailHtml {
                 {
                     OptionProvider op = property.optionProvider();
                     if (op == null) {
-                        rootDoc.printError(property.ref().position(), "Multi-check property lacks the option provider");
+                        errorReporter.printError(property.position(), "Multi-check property lacks the option provider");
                         detailTitle += "???";
                         break;
                     }
@@ -148,8 +151,8 @@ class RuleDetailHtml extends AbstractDetailHtml {
                 {
                     OptionProvider op = property.optionProvider();
                     if (op == null) {
-                        rootDoc.printError(
-                            property.ref().position(),
+                        errorReporter.printError(
+                            property.position(),
                             "Single-select property lacks the option provider"
                         );
                         detailTitle += "???";
@@ -200,9 +203,9 @@ class RuleDetailHtml extends AbstractDetailHtml {
 
             // Index entry for rule property.
             {
-                String ruleLink     = rule.familyPlural() + "/" + rule.ref().name().replace('.', '/');
+                String ruleLink     = rule.familyPlural() + "/" + ruleClassName.replace('.', '/');
                 String propertyLink = ruleLink + "#property_" + property.name();
-                indexEntries.consume(IndexPages.indexEntry(
+                indexEntries.consume(new IndexItem(
                     property.name(),                                                         // key
                     propertyLink,                                                            // link
                     "Property of rule <a href=\"" + ruleLink + "\">" + rule.name() + "</a>", // explanation
@@ -283,23 +286,10 @@ class RuleDetailHtml extends AbstractDetailHtml {
 "        <h3>Quickfixes:</h3>",
 "          <dl>"
                     );
-                    for (Quickfix qf : qfs) {
-                        String link;
-                        try {
-                            link = html.makeLink(
-                                rule.ref(), // from
-                                qf.ref(),   // to
-                                true,       // plain
-                                qf.label(), // label
-                                null,       // target
-                                rootDoc
-                            );
-                        } catch (Longjump l) {
-                            link = qf.label();
-                        }
+                    for (int i = 0; i < qfs.length; i++) {
                         this.l(
-"            <dt>" + link + "</dt>",
-"            <dd>" + qf.shortDescription() + "</dd>"
+"            <dt>" + quickfixLinks[i] + "</dt>",
+"            <dd>" + qfs[i].shortDescription() + "</dd>"
                         );
                     }
                     this.l(
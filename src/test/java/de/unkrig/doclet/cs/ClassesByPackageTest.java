@@ -0,0 +1,146 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.PackageDoc;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Tests for {@link CsDoclet#classesByPackage(ClassDoc[])}.
+ */
+public
+class ClassesByPackageTest {
+
+    @Test public void
+    testGrouping() {
+
+        ClassDoc a1 = ClassesByPackageTest.classDoc("pkg.a", "A1");
+        ClassDoc a2 = ClassesByPackageTest.classDoc("pkg.a", "A2");
+        ClassDoc b1 = ClassesByPackageTest.classDoc("pkg.b", "B1");
+
+        Map<String, SortedMap<String, ClassDoc>> result = CsDoclet.classesByPackage(new ClassDoc[] { a2, b1, a1 });
+
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(Arrays.asList("A1", "A2"), new ArrayList<String>(result.get("pkg.a").keySet()));
+        Assert.assertEquals(Arrays.asList(a1, a2), new ArrayList<ClassDoc>(result.get("pkg.a").values()));
+        Assert.assertEquals(Arrays.asList(b1), new ArrayList<ClassDoc>(result.get("pkg.b").values()));
+    }
+
+    @Test public void
+    testEmpty() {
+        Assert.assertTrue(CsDoclet.classesByPackage(new ClassDoc[0]).isEmpty());
+    }
+
+    /**
+     * Verifies that classes of different packages, but with equal names, do not get mixed up.
+     */
+    @Test public void
+    testEqualClassNamesInDifferentPackages() {
+
+        ClassDoc a = ClassesByPackageTest.classDoc("pkg.a", "C");
+        ClassDoc b = ClassesByPackageTest.classDoc("pkg.b", "C");
+
+        Map<String, SortedMap<String, ClassDoc>> result = CsDoclet.classesByPackage(new ClassDoc[] { a, b });
+
+        Assert.assertSame(a, result.get("pkg.a").get("C"));
+        Assert.assertSame(b, result.get("pkg.b").get("C"));
+    }
+
+    /**
+     * @return A stub that implements only {@link ClassDoc#name()} and {@link ClassDoc#containingPackage()}
+     */
+    private static ClassDoc
+    classDoc(String packageName, final String className) {
+
+        final PackageDoc packageDoc = ClassesByPackageTest.stub(PackageDoc.class, "name", packageName);
+
+        return ClassesByPackageTest.stub(ClassDoc.class, new InvocationHandler() {
+
+            @Override @Nullable public Object
+            invoke(@Nullable Object proxy, @Nullable Method method, @Nullable Object[] args) {
+                assert method != null;
+
+                if ("name".equals(method.getName()))              return className;
+                if ("containingPackage".equals(method.getName())) return packageDoc;
+
+                return ClassesByPackageTest.objectMethod(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * @return A stub that implements only the named method, which returns the given <var>value</var>
+     */
+    private static <T> T
+    stub(Class<T> intf, final String methodName, final Object value) {
+
+        return ClassesByPackageTest.stub(intf, new InvocationHandler() {
+
+            @Override @Nullable public Object
+            invoke(@Nullable Object proxy, @Nullable Method method, @Nullable Object[] args) {
+                assert method != null;
+
+                if (methodName.equals(method.getName())) return value;
+
+                return ClassesByPackageTest.objectMethod(proxy, method, args);
+            }
+        });
+    }
+
+    private static <T> T
+    stub(Class<T> intf, InvocationHandler handler) {
+        return intf.cast(Proxy.newProxyInstance(intf.getClassLoader(), new Class<?>[] { intf }, handler));
+    }
+
+    /**
+     * Implements the methods of {@link Object} for a stub, with identity semantics.
+     *
+     * @throws UnsupportedOperationException The <var>method</var> is not a method of {@link Object}
+     */
+    @Nullable private static Object
+    objectMethod(@Nullable Object proxy, Method method, @Nullable Object[] args) {
+
+        if ("equals".equals(method.getName()) && args != null && args.length == 1) return proxy == args[0];
+        if ("hashCode".equals(method.getName()) && args == null) return System.identityHashCode(proxy);
+        if ("toString".equals(method.getName()) && args == null) return "Stub@" + System.identityHashCode(proxy);
+
+        throw new UnsupportedOperationException(method.toString());
+    }
+}
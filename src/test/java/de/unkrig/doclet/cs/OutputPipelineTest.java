@@ -0,0 +1,136 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.javadoc.DocErrorReporter;
+import com.sun.javadoc.SourcePosition;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+
+/**
+ * Tests for {@link OutputPipeline}.
+ */
+public
+class OutputPipelineTest {
+
+    /**
+     * Verifies that the diagnostics of the tasks are reported in submission order, and interleaved with the
+     * diagnostics of the submitting thread in the same way, no matter how long the tasks take.
+     */
+    @Test public void
+    testDiagnosticsDoNotDependOnThreadScheduling() throws IOException {
+
+        List<String> expected = Arrays.asList(
+            "d0", "d1", "d2", "d3",
+            "t0", "d4", "t1", "d5", "t2", "d6", "t3", "d7", "t4", "d8", "t5", "d9",
+            "t6", "t7", "t8", "t9"
+        );
+
+        Random random = new Random(42);
+        for (int run = 0; run < 20; run++) {
+
+            final List<String> actual = new ArrayList<String>();
+            DocErrorReporter   target = new RecordingDocErrorReporter(actual);
+
+            OutputPipeline pipeline = new OutputPipeline(2, target);
+            for (int i = 0; i < 10; i++) {
+                final String message = "t" + i;
+                final long   delay   = random.nextInt(5);
+                pipeline.submit(errorReporter -> {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException ie) {
+                        throw new AssertionError(ie);
+                    }
+                    errorReporter.printWarning(message);
+                });
+                target.printNotice("d" + i);
+            }
+            pipeline.finish();
+
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
+    @Test public void
+    testFailureIsReportedWithTheDiagnosticsOfTheTask() {
+
+        List<String>   actual   = new ArrayList<String>();
+        OutputPipeline pipeline = new OutputPipeline(2, new RecordingDocErrorReporter(actual));
+
+        try {
+            pipeline.submit(errorReporter -> {
+                errorReporter.printError("t0");
+                throw new IOException("Disk full");
+            });
+            pipeline.finish();
+            Assert.fail();
+        } catch (IOException ioe) {
+            Assert.assertEquals("Disk full", ioe.getMessage());
+        }
+
+        Assert.assertEquals(Arrays.asList("t0"), actual);
+    }
+
+    /**
+     * Records the messages of all diagnostics.
+     */
+    private static
+    class RecordingDocErrorReporter implements DocErrorReporter {
+
+        private final List<String> messages;
+
+        RecordingDocErrorReporter(List<String> messages) { this.messages = messages; }
+
+        @Override public void
+        printError(@Nullable String msg) { this.messages.add(msg); }
+
+        @Override public void
+        printError(@Nullable SourcePosition pos, @Nullable String msg) { this.messages.add(msg); }
+
+        @Override public void
+        printWarning(@Nullable String msg) { this.messages.add(msg); }
+
+        @Override public void
+        printWarning(@Nullable SourcePosition pos, @Nullable String msg) { this.messages.add(msg); }
+
+        @Override public void
+        printNotice(@Nullable String msg) { this.messages.add(msg); }
+
+        @Override public void
+        printNotice(@Nullable SourcePosition pos, @Nullable String msg) { this.messages.add(msg); }
+    }
+}
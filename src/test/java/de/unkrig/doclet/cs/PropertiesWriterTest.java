@@ -0,0 +1,149 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PropertiesWriter}: Keys and values must survive a round trip through {@link
+ * Properties#load(java.io.InputStream)}.
+ */
+public
+class PropertiesWriterTest {
+
+    private static final String[] KEYS = {
+        "key",
+        " leadingSpace",
+        "inner space",
+        "trailingSpace ",
+        "a=b",
+        "a:b",
+        "#notAComment",
+        "!notAComment",
+        "back\\slash",
+        "tab\tnewline\ncr\rformfeed\f",
+        "äöü€",
+        "",
+    };
+
+    private static final String[] VALUES = {
+        "value",
+        " leadingSpace",
+        "  twoLeadingSpaces",
+        "trailingSpace ",
+        "a=b:c#d!e",
+        "#startsWithHash",
+        "back\\slash\\",
+        "tab\tnewline\ncr\rformfeed\f",
+        "äöü€ 😀",
+        "control\u0001\u001f\u007f",
+        "",
+    };
+
+    @Test public void
+    testProperty() throws IOException {
+
+        for (String key : PropertiesWriterTest.KEYS) {
+            for (String value : PropertiesWriterTest.VALUES) {
+
+                StringWriter sw = new StringWriter();
+                new PropertiesWriter(sw).property(key, 0, value);
+
+                Properties properties = PropertiesWriterTest.load(sw.toString());
+                Assert.assertEquals(sw.toString(), 1, properties.size());
+                Assert.assertEquals(sw.toString(), value, properties.getProperty(key));
+            }
+        }
+    }
+
+    @Test public void
+    testKeyWidth() throws IOException {
+
+        StringWriter sw = new StringWriter();
+        new PropertiesWriter(sw).property("a", 5, "1").property("long.key", 5, "2");
+
+        String nl = PropertiesWriter.NL;
+        Assert.assertEquals("a     = 1" + nl + "long.key = 2" + nl, sw.toString());
+
+        Properties properties = PropertiesWriterTest.load(sw.toString());
+        Assert.assertEquals("1", properties.getProperty("a"));
+        Assert.assertEquals("2", properties.getProperty("long.key"));
+    }
+
+    @Test public void
+    testMultiLineProperty() throws IOException {
+
+        PropertiesWriterTest.assertMultiLine("line1\nline2\nline3\nline4", "line1\nline2\r\nline3\rline4");
+        PropertiesWriterTest.assertMultiLine("a\n\nb", "a\n\nb");
+        PropertiesWriterTest.assertMultiLine(" indented\n  more\nnot", " indented\n  more\nnot");
+        PropertiesWriterTest.assertMultiLine("x = y\n#z\n!w", "x = y\n#z\n!w");
+        PropertiesWriterTest.assertMultiLine("one line", "one line");
+        PropertiesWriterTest.assertMultiLine("", "");
+
+        // Like "BufferedReader.readLine()", a trailing line separator does not start another line.
+        PropertiesWriterTest.assertMultiLine("last", "last\n");
+    }
+
+    @Test public void
+    testOutputIsAscii() throws IOException {
+
+        StringWriter sw = new StringWriter();
+        PropertiesWriter pw = new PropertiesWriter(sw);
+        for (String value : PropertiesWriterTest.VALUES) pw.property("ä", 0, value);
+        pw.multiLineProperty("ö", "ü\n€");
+
+        for (char c : sw.toString().toCharArray()) {
+            Assert.assertTrue(sw.toString(), c == '\r' || c == '\n' || c == '\t' || (c >= 0x20 && c <= 0x7e));
+        }
+    }
+
+    private static void
+    assertMultiLine(String expected, String value) throws IOException {
+
+        StringWriter sw = new StringWriter();
+        new PropertiesWriter(sw).multiLineProperty("key", value).property("next", 0, "x");
+
+        Properties properties = PropertiesWriterTest.load(sw.toString());
+        Assert.assertEquals(sw.toString(), expected, properties.getProperty("key"));
+        Assert.assertEquals(sw.toString(), "x", properties.getProperty("next"));
+    }
+
+    private static Properties
+    load(String text) throws IOException {
+
+        Properties result = new Properties();
+        result.load(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1)));
+        return result;
+    }
+}
@@ -0,0 +1,169 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.javadoc.Doc;
+import com.sun.javadoc.SourcePosition;
+
+import de.unkrig.commons.nullanalysis.Nullable;
+import de.unkrig.doclet.cs.CsDoclet.Quickfix;
+import de.unkrig.doclet.cs.CsDoclet.Rule;
+import de.unkrig.doclet.cs.CsDoclet.RuleProperty;
+
+/**
+ * Tests for {@link Snapshots}.
+ */
+public
+class SnapshotsTest {
+
+    /**
+     * Rules are snapshotted (for the metadata files and their detail pages) while the packages are processed, i.e.
+     * before the {@link QuickfixIndex} is complete.
+     */
+    @Test public void
+    testCheckWithQuickfixBeforeQuickfixIndexIsComplete() {
+
+        QuickfixIndex quickfixIndex = new QuickfixIndex();
+        Quickfix      quickfix      = SnapshotsTest.quickfix("my.Fix", "Fixes it.", quickfixIndex);
+        quickfixIndex.add(quickfix);
+
+        Rule rule = SnapshotsTest.rule("MyCheck", "Checks it.", quickfix);
+
+        Rule snapshot = Snapshots.rule(rule);
+
+        Quickfix[] qfs = snapshot.quickfixes();
+        Assert.assertNotNull(qfs);
+        Assert.assertEquals(1, qfs.length);
+        Assert.assertEquals("my.Fix", qfs[0].label());
+        Assert.assertEquals("Fixes it.", qfs[0].shortDescription());
+
+        // Once the index is complete, the rules of the quickfix are available through the snapshot, too.
+        quickfixIndex.complete(Collections.singletonList(rule));
+        Assert.assertArrayEquals(new Rule[] { rule }, qfs[0].rules());
+    }
+
+    @Test public void
+    testQuickfixSnapshotHasRuleSnapshots() {
+
+        QuickfixIndex quickfixIndex = new QuickfixIndex();
+        Quickfix      quickfix      = SnapshotsTest.quickfix("my.Fix", "Fixes it.", quickfixIndex);
+        quickfixIndex.add(quickfix);
+
+        Rule rule1 = SnapshotsTest.rule("Check1", "Checks one thing.", quickfix);
+        Rule rule2 = SnapshotsTest.rule("Check2", "Checks another thing.", quickfix);
+        quickfixIndex.complete(Arrays.asList(rule1, rule2));
+
+        Rule[] rules = Snapshots.quickfix(quickfix).rules();
+        Assert.assertNotNull(rules);
+        Assert.assertEquals(2, rules.length);
+        Assert.assertEquals("Check1", rules[0].name());
+        Assert.assertEquals("Checks one thing.", rules[0].longDescription());
+        Assert.assertEquals("Check2", rules[1].name());
+        Assert.assertEquals("Checks another thing.", rules[1].longDescription());
+    }
+
+    @Test public void
+    testDescriptionsAreRenderedWhenTheSnapshotIsTaken() {
+
+        final String[] description = { "Before." };
+
+        Rule rule = new TestRule("MyCheck", null) {
+            @Override public String shortDescription() { return description[0]; }
+            @Override public String longDescription()  { return description[0]; }
+        };
+
+        Rule snapshot = Snapshots.rule(rule);
+        description[0] = "After.";
+
+        Assert.assertEquals("Before.", snapshot.shortDescription());
+        Assert.assertEquals("Before.", snapshot.longDescription());
+    }
+
+    private static Rule
+    rule(String name, final String description, Quickfix... quickfixes) {
+
+        return new TestRule(name, quickfixes) {
+            @Override public String shortDescription() { return description; }
+            @Override public String longDescription()  { return description; }
+        };
+    }
+
+    private static Quickfix
+    quickfix(final String className, final String description, final QuickfixIndex quickfixIndex) {
+
+        return new Quickfix() {
+            @Override @Nullable public Doc    ref()              { return null;                          }
+            @Override @Nullable public String className()        { return className;                     }
+            @Override public String           label()            { return className;                     }
+            @Override public String           simpleName()       { return className;                     }
+            @Override public String           shortDescription() { return description;                   }
+            @Override public String           longDescription()  { return description;                   }
+            @Override @Nullable public Rule[] rules()            { return quickfixIndex.rulesOf(this);   }
+        };
+    }
+
+    /**
+     * A rule without properties and messages.
+     */
+    private abstract static
+    class TestRule implements Rule {
+
+        private final String               name;
+        @Nullable private final Quickfix[] quickfixes;
+
+        TestRule(String name, @Nullable Quickfix[] quickfixes) {
+            this.name       = name;
+            this.quickfixes = quickfixes;
+        }
+
+        @Override @Nullable public Doc            ref()            { return null;                        }
+        @Override @Nullable public SourcePosition position()       { return null;                        }
+        @Override public String                   familySingular() { return "check";                     }
+        @Override public String                   familyPlural()   { return "checks";                    }
+        @Override public String                   group()          { return "group";                     }
+        @Override public String                   groupName()      { return "Group";                     }
+        @Override public String                   name()           { return this.name;                   }
+        @Override public String                   internalName()   { return "my." + this.name;           }
+        @Override public String                   simpleName()     { return this.name;                   }
+        @Override public String                   parent()         { return "TreeWalker";                }
+        @Override public Collection<RuleProperty> properties()     { return Collections.emptyList();     }
+        @Override @Nullable public Quickfix[]     quickfixes()     { return this.quickfixes;             }
+        @Override @Nullable public Boolean        hasSeverity()    { return true;                        }
+
+        @Override public SortedMap<String, String>
+        messages() { return new TreeMap<String, String>(); }
+    }
+}
@@ -0,0 +1,213 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link UnifiedDiff}. The expected hunks are those of "{@code diff -U3}", with explicit line counts.
+ */
+public
+class UnifiedDiffTest {
+
+    private static final Pattern HUNK_HEADER = Pattern.compile("@@ -(\\d+),(\\d+) \\+(\\d+),(\\d+) @@");
+
+    @Test public void
+    testIdentical() {
+        Assert.assertEquals("--- a\n+++ b\n", UnifiedDiff.diff("1\n2\n", "1\n2\n", "a", "b"));
+        Assert.assertEquals("--- a\n+++ b\n", UnifiedDiff.diff("", "", "a", "b"));
+    }
+
+    @Test public void
+    testLineSeparatorsAreIgnored() {
+        Assert.assertEquals("--- a\n+++ b\n", UnifiedDiff.diff("1\r\n2\r\n", "1\n2", "a", "b"));
+    }
+
+    @Test public void
+    testChangeInTheMiddle() {
+
+        String old = UnifiedDiffTest.lines(1, 10);
+
+        Assert.assertEquals(
+            "--- a\n+++ b\n@@ -2,7 +2,7 @@\n 2\n 3\n 4\n-5\n+five\n 6\n 7\n 8\n",
+            UnifiedDiff.diff(old, old.replace("\n5\n", "\nfive\n"), "a", "b")
+        );
+    }
+
+    @Test public void
+    testChangesAtTheBoundaries() {
+        Assert.assertEquals(
+            "--- a\n+++ b\n@@ -1,4 +1,4 @@\n-1\n+one\n 2\n 3\n 4\n@@ -7,4 +7,4 @@\n 7\n 8\n 9\n-10\n+ten\n",
+            UnifiedDiff.diff(UnifiedDiffTest.lines(1, 10), "one\n2\n3\n4\n5\n6\n7\n8\n9\nten\n", "a", "b")
+        );
+    }
+
+    @Test public void
+    testAddToEmpty() {
+        Assert.assertEquals("--- a\n+++ b\n@@ -0,0 +1,2 @@\n+1\n+2\n", UnifiedDiff.diff("", "1\n2\n", "a", "b"));
+    }
+
+    @Test public void
+    testRemoveAll() {
+        Assert.assertEquals("--- a\n+++ b\n@@ -1,2 +0,0 @@\n-1\n-2\n", UnifiedDiff.diff("1\n2\n", "", "a", "b"));
+    }
+
+    /**
+     * Two changes that are separated by six unchanged lines share one hunk; with seven, they get one hunk each.
+     */
+    @Test public void
+    testHunkMerging() {
+
+        String old = UnifiedDiffTest.lines(1, 20);
+
+        Assert.assertEquals(
+            "--- a\n+++ b\n@@ -1,13 +1,13 @@\n 1\n 2\n-3\n+x\n 4\n 5\n 6\n 7\n 8\n 9\n-10\n+y\n 11\n 12\n 13\n",
+            UnifiedDiff.diff(old, old.replace("\n3\n", "\nx\n").replace("\n10\n", "\ny\n"), "a", "b")
+        );
+        Assert.assertEquals(
+            ""
+            + "--- a\n+++ b\n"
+            + "@@ -1,6 +1,6 @@\n 1\n 2\n-3\n+x\n 4\n 5\n 6\n"
+            + "@@ -8,7 +8,7 @@\n 8\n 9\n 10\n-11\n+y\n 12\n 13\n 14\n",
+            UnifiedDiff.diff(old, old.replace("\n3\n", "\nx\n").replace("\n11\n", "\ny\n"), "a", "b")
+        );
+    }
+
+    @Test public void
+    testTooDifferent() {
+
+        StringBuilder a = new StringBuilder(), b = new StringBuilder();
+        for (int i = 0; i < 1001; i++) {
+            a.append("a").append(i).append('\n');
+            b.append("b").append(i).append('\n');
+        }
+
+        Assert.assertNull(UnifiedDiff.diff(a.toString(), b.toString(), "a", "b"));
+    }
+
+    /**
+     * Verifies, for many random pairs of texts, that applying the diff to the old text yields the new text, and that
+     * the hunk headers are consistent with the hunks.
+     */
+    @Test public void
+    testRandomTextsPatchCorrectly() {
+
+        Random random = new Random(4711);
+        for (int run = 0; run < 2000; run++) {
+
+            List<String> oldLines = UnifiedDiffTest.randomLines(random);
+            List<String> newLines = UnifiedDiffTest.randomLines(random);
+
+            String diff = UnifiedDiff.diff(UnifiedDiffTest.join(oldLines), UnifiedDiffTest.join(newLines), "a", "b");
+            Assert.assertNotNull(diff);
+
+            Assert.assertEquals(diff, newLines, UnifiedDiffTest.patch(oldLines, diff));
+        }
+    }
+
+    /**
+     * Applies the <var>diff</var> to the <var>lines</var>, and checks the context lines and the hunk headers.
+     */
+    private static List<String>
+    patch(List<String> lines, String diff) {
+
+        String[] diffLines = diff.split("\n");
+        Assert.assertEquals("--- a", diffLines[0]);
+        Assert.assertEquals("+++ b", diffLines[1]);
+
+        List<String> result = new ArrayList<String>();
+        int          next   = 0;   // The index of the next old line to copy
+        for (int i = 2; i < diffLines.length;) {
+
+            Matcher m = UnifiedDiffTest.HUNK_HEADER.matcher(diffLines[i++]);
+            Assert.assertTrue(diff, m.matches());
+            int oldStart = Integer.parseInt(m.group(1)), oldCount = Integer.parseInt(m.group(2));
+            int newStart = Integer.parseInt(m.group(3)), newCount = Integer.parseInt(m.group(4));
+
+            // A hunk with no old (new) lines names the line BEFORE the hunk.
+            int from = oldCount == 0 ? oldStart : oldStart - 1;
+            Assert.assertTrue(diff, from >= next);
+            result.addAll(lines.subList(next, from));
+            next = from;
+            Assert.assertEquals(diff, newCount == 0 ? newStart : newStart - 1, result.size());
+
+            int olds = 0, news = 0;
+            for (; i < diffLines.length && !diffLines[i].startsWith("@@"); i++) {
+                char   type = diffLines[i].charAt(0);
+                String text = diffLines[i].substring(1);
+                if (type != '+') {
+                    Assert.assertEquals(diff, lines.get(next++), text);
+                    olds++;
+                }
+                if (type != '-') {
+                    result.add(text);
+                    news++;
+                }
+            }
+            Assert.assertEquals(diff, oldCount, olds);
+            Assert.assertEquals(diff, newCount, news);
+        }
+        result.addAll(lines.subList(next, lines.size()));
+
+        return result;
+    }
+
+    /**
+     * @return Up to 30 lines from a small alphabet, so that the texts have many equal lines
+     */
+    private static List<String>
+    randomLines(Random random) {
+
+        List<String> result = new ArrayList<String>();
+        for (int i = random.nextInt(30); i > 0; i--) result.add(String.valueOf((char) ('a' + random.nextInt(4))));
+        return result;
+    }
+
+    private static String
+    join(List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) sb.append(line).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * @return The numbers <var>from</var>...<var>to</var>, one per line
+     */
+    private static String
+    lines(int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i <= to; i++) sb.append(i).append('\n');
+        return sb.toString();
+    }
+}
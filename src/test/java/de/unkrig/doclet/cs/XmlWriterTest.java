@@ -0,0 +1,114 @@
+
+/*
+ * de.unkrig.doclet.cs - A doclet which generates metadata documents for a CheckStyle extension
+ *
+ * Copyright (c) 2014, Arno Unkrig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.unkrig.doclet.cs;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+/**
+ * Tests for {@link XmlWriter}: Text and attribute values must survive a round trip through an XML parser.
+ */
+public
+class XmlWriterTest {
+
+    @Test public void
+    testMarkupCharacters() throws Exception {
+        XmlWriterTest.assertRoundTrip("a & b < c > d \"e\" 'f' &amp; <![CDATA[ ]]> -->");
+    }
+
+    @Test public void
+    testLineBreaksAndTabs() throws Exception {
+        XmlWriterTest.assertRoundTrip("line 1\nline 2\r\nline 3\rline 4\tend");
+    }
+
+    @Test public void
+    testNonAscii() throws Exception {
+        XmlWriterTest.assertRoundTrip("äöü € 😀");
+    }
+
+    @Test public void
+    testEmptyAndNull() throws Exception {
+        XmlWriterTest.assertRoundTrip("");
+        Assert.assertEquals("null", XmlWriterTest.parse(new StringWriter(), null).getAttribute("a"));
+    }
+
+    @Test public void
+    testComment() throws Exception {
+
+        for (String text : new String[] { "a--b", "a---b", "a----b", "-", "--", "trailing-" }) {
+
+            StringWriter sw = new StringWriter();
+            new XmlWriter(sw).raw("<root>").comment(text).raw("</root>");
+
+            Node comment = XmlWriterTest.parse(sw.toString()).getDocumentElement().getFirstChild();
+            Assert.assertEquals(text, Node.COMMENT_NODE, comment.getNodeType());
+            Assert.assertEquals(text, text.replace("-", ""), comment.getNodeValue().replaceAll("[- ]", ""));
+        }
+    }
+
+    private static void
+    assertRoundTrip(String value) throws Exception {
+
+        Element root = XmlWriterTest.parse(new StringWriter(), value);
+
+        Assert.assertEquals(value, root.getAttribute("a"));
+        Assert.assertEquals(value, root.getTextContent());
+    }
+
+    /**
+     * Writes a "root" element with the <var>value</var> as the value of its "a" attribute and as its text, and
+     * parses it.
+     */
+    private static Element
+    parse(StringWriter sw, Object value) throws Exception {
+
+        new XmlWriter(sw)
+        .raw("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+        .raw("<root a=\"")
+        .attributeValue(value)
+        .raw("\">")
+        .text(value)
+        .raw("</root>");
+
+        return XmlWriterTest.parse(sw.toString()).getDocumentElement();
+    }
+
+    private static Document
+    parse(String xml) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+    }
+
+}